@@ -0,0 +1,103 @@
+package util.range;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the throughput of a {@link ConcurrentIntervalSet} with a
+ * {@link SeparateIntervalSet} behind one global lock, both shared by all
+ * threads and holding the Intervals [8k,8k+4) of [0,2^20). The mixed group
+ * runs three readers against one writer, which unites or removes random
+ * Intervals; run it with -tg to change the mix, or contains alone with -t to
+ * scale the readers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentIntervalSetBenchmark {
+	private static final int DOMAIN = 1 << 20;
+	
+	public enum Implementation {
+		CONCURRENT, LOCKED
+	}
+	
+	@Param({ "CONCURRENT", "LOCKED" })
+	private Implementation implementation;
+	
+	private WritableRange<Integer> set;
+	
+	@Setup
+	public void setup() {
+		set = implementation == Implementation.CONCURRENT ? new ConcurrentIntervalSet<Integer>()
+				: new SeparateIntervalSet<Integer>();
+		for (int i = 0; i < DOMAIN; i += 8) {
+			set.union(new Interval<Integer>(i, i + 4, Interval.INFIMUM_EX_INCLUDED | Interval.SUPREMUM_EXISTS));
+		}
+	}
+	
+	@Benchmark
+	@Threads(4)
+	public boolean contains() {
+		return read();
+	}
+	
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(3)
+	public boolean reader() {
+		return read();
+	}
+	
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(1)
+	public void writer() {
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		final int e = random.nextInt(DOMAIN);
+		final Interval<Integer> i = new Interval<Integer>(e, e + 3, Interval.INFIMUM_EX_INCLUDED
+				| Interval.SUPREMUM_EXISTS);
+		if (implementation == Implementation.CONCURRENT) {
+			write(i, random.nextBoolean());
+		} else {
+			synchronized (set) {
+				write(i, random.nextBoolean());
+			}
+		}
+	}
+	
+	private boolean read() {
+		final int e = ThreadLocalRandom.current().nextInt(DOMAIN);
+		if (implementation == Implementation.CONCURRENT) {
+			return set.contains(e);
+		}
+		synchronized (set) {
+			return set.contains(e);
+		}
+	}
+	
+	private void write(final Interval<Integer> i, final boolean union) {
+		if (union) {
+			set.union(i);
+		} else {
+			set.remove(i);
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package util.range;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the operations on single {@link Interval}s. Every call takes the
+ * next of a fixed set of random operands, so that neither the branches nor
+ * the results can be predicted by the JIT.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntervalBenchmark {
+	private static final int OPERANDS = 1 << 12;
+	private static final int MASK = OPERANDS - 1;
+	
+	private Interval<Integer>[] intervals;
+	private Interval<Integer>[] others;
+	private Interval<Integer>[] connected;
+	private Integer[] points;
+	private int next;
+	
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setup() {
+		final Random random = new Random(42);
+		intervals = new Interval[OPERANDS];
+		others = new Interval[OPERANDS];
+		connected = new Interval[OPERANDS];
+		points = new Integer[OPERANDS];
+		for (int k = 0; k < OPERANDS; k++) {
+			final int infimum = random.nextInt(1000);
+			final int length = random.nextInt(100);
+			intervals[k] = interval(random, infimum, infimum + length);
+			final int other = random.nextInt(1000);
+			others[k] = interval(random, other, other + random.nextInt(100));
+			final int start = infimum + random.nextInt(length + 1);
+			connected[k] = new Interval<Integer>(start, start + random.nextInt(100), Interval.INFIMUM_EX_INCLUDED
+					| Interval.SUPREMUM_EX_INCLUDED);
+			points[k] = random.nextInt(1100);
+		}
+	}
+	
+	private static Interval<Integer> interval(final Random random, final int infimum, final int supremum) {
+		return new Interval<Integer>(infimum, supremum, Interval.INFIMUM_EXISTS | Interval.SUPREMUM_EXISTS
+				| random.nextInt(4));
+	}
+	
+	@Benchmark
+	public boolean contains() {
+		final int k = next++ & MASK;
+		return intervals[k].contains(points[k]);
+	}
+	
+	@Benchmark
+	public boolean intersects() {
+		final int k = next++ & MASK;
+		return intervals[k].intersects(others[k]);
+	}
+	
+	@Benchmark
+	public Interval<? extends Integer> intersection() {
+		final int k = next++ & MASK;
+		return Interval.intersection(intervals[k], others[k]);
+	}
+	
+	@Benchmark
+	public Interval<Integer> connectedUnion() {
+		final int k = next++ & MASK;
+		return Interval.connectedUnion(intervals[k], connected[k]);
+	}
+}
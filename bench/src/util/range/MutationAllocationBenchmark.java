@@ -0,0 +1,100 @@
+package util.range;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the garbage produced by changing a {@link SeparateIntervalSet} and
+ * an {@link InlineIntervalSet} holding size Intervals [4k,4k+2). Every
+ * benchmark restores the set, and all operands are created up front, so
+ * -prof gc reports only what the sets allocate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MutationAllocationBenchmark {
+	private static final int OPERANDS = 1 << 12;
+	private static final int MASK = OPERANDS - 1;
+	
+	public enum Implementation {
+		SEPARATE, INLINE
+	}
+	
+	@Param({ "1000", "1000000" })
+	private int size;
+	
+	@Param({ "SEPARATE", "INLINE" })
+	private Implementation implementation;
+	
+	private WritableRange<Integer> set;
+	private Integer[] inner;
+	private Integer[] suprema;
+	private Interval<Integer>[] bridges;
+	private int next;
+	
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setup() {
+		set = implementation == Implementation.SEPARATE ? new SeparateIntervalSet<Integer>()
+				: new InlineIntervalSet<Integer>();
+		for (int k = 0; k < size; k++) {
+			set.union(new Interval<Integer>(4 * k, 4 * k + 2, Interval.INFIMUM_EX_INCLUDED | Interval.SUPREMUM_EXISTS));
+		}
+		final Random random = new Random(42);
+		inner = new Integer[OPERANDS];
+		suprema = new Integer[OPERANDS];
+		bridges = new Interval[OPERANDS];
+		for (int k = 0; k < OPERANDS; k++) {
+			final int infimum = 4 * random.nextInt(size);
+			inner[k] = infimum + 1;
+			suprema[k] = infimum + 2;
+			bridges[k] = new Interval<Integer>(infimum + 2, infimum + 4, Interval.INFIMUM_EX_INCLUDED
+					| Interval.SUPREMUM_EXISTS);
+		}
+	}
+	
+	/**
+	 * Adds an element, that is already contained.
+	 */
+	@Benchmark
+	public void addContained() {
+		set.add(inner[next++ & MASK]);
+	}
+	
+	/**
+	 * Adds the excluded supremum of an Interval, which extends it, and
+	 * removes it again.
+	 */
+	@Benchmark
+	public void extendRemove() {
+		final Integer e = suprema[next++ & MASK];
+		set.add(e);
+		set.remove(e);
+	}
+	
+	/**
+	 * Adds an Interval bridging a gap, which coalesces it with both
+	 * neighbours, and removes it again, which splits them apart.
+	 */
+	@Benchmark
+	public void unionRemove() {
+		final Interval<Integer> i = bridges[next++ & MASK];
+		set.union(i);
+		set.remove(i);
+	}
+}
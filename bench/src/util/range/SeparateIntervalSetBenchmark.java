@@ -0,0 +1,166 @@
+package util.range;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link SeparateIntervalSet} holding size Intervals [4k,4k+2]. The
+ * set is built once per trial in the given order and the mutating benchmarks
+ * restore it after every call, so all benchmarks see the same tree. Run with
+ * -prof gc for the allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SeparateIntervalSetBenchmark {
+	private static final int OPERANDS = 1 << 12;
+	private static final int MASK = OPERANDS - 1;
+	
+	public enum Order {
+		/**
+		 * Ascending.
+		 */
+		SORTED,
+		/**
+		 * Shuffled.
+		 */
+		RANDOM,
+		/**
+		 * Every Interval is added as two halves, all lower halves first in
+		 * random order, then all upper halves, each of which coalesces with
+		 * its lower half.
+		 */
+		ADVERSARIAL
+	}
+	
+	@Param({ "10", "1000", "100000", "10000000" })
+	private int size;
+	
+	@Param({ "SORTED", "RANDOM", "ADVERSARIAL" })
+	private Order order;
+	
+	private List<Interval<Integer>> insertions;
+	private SeparateIntervalSet<Integer> set;
+	private Integer[] points;
+	private Integer[] gaps;
+	private Interval<Integer>[] bridges;
+	private Interval<Integer>[] queries;
+	private int next;
+	
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setup() {
+		final Random random = new Random(42);
+		insertions = new ArrayList<Interval<Integer>>();
+		if (order == Order.ADVERSARIAL) {
+			final List<Interval<Integer>> upper = new ArrayList<Interval<Integer>>(size);
+			for (int k = 0; k < size; k++) {
+				insertions.add(new Interval<Integer>(4 * k, 4 * k + 1, Interval.INFIMUM_EX_INCLUDED
+						| Interval.SUPREMUM_EXISTS));
+				upper.add(new Interval<Integer>(4 * k + 1, 4 * k + 2, Interval.INFIMUM_EX_INCLUDED
+						| Interval.SUPREMUM_EX_INCLUDED));
+			}
+			Collections.shuffle(insertions, random);
+			Collections.shuffle(upper, random);
+			insertions.addAll(upper);
+		} else {
+			for (int k = 0; k < size; k++) {
+				insertions.add(new Interval<Integer>(4 * k, 4 * k + 2, Interval.INFIMUM_EX_INCLUDED
+						| Interval.SUPREMUM_EX_INCLUDED));
+			}
+			if (order == Order.RANDOM) {
+				Collections.shuffle(insertions, random);
+			}
+		}
+		set = build();
+		points = new Integer[OPERANDS];
+		gaps = new Integer[OPERANDS];
+		bridges = new Interval[OPERANDS];
+		queries = new Interval[OPERANDS];
+		for (int k = 0; k < OPERANDS; k++) {
+			points[k] = random.nextInt(4 * size);
+			final int gap = 4 * random.nextInt(size) + 2;
+			gaps[k] = gap + 1;
+			bridges[k] = new Interval<Integer>(gap, gap + 2, Interval.INFIMUM_EXISTS | Interval.SUPREMUM_EXISTS);
+			final int infimum = random.nextInt(4 * size);
+			queries[k] = new Interval<Integer>(infimum, infimum + 1, Interval.INFIMUM_EX_INCLUDED
+					| Interval.SUPREMUM_EX_INCLUDED);
+		}
+	}
+	
+	/**
+	 * Builds the set by adding the Intervals one by one in the given order.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 5)
+	@Measurement(iterations = 10)
+	public SeparateIntervalSet<Integer> build() {
+		final SeparateIntervalSet<Integer> result = new SeparateIntervalSet<Integer>();
+		for (final Interval<Integer> i : insertions) {
+			result.union(i);
+		}
+		return result;
+	}
+	
+	@Benchmark
+	public boolean contains() {
+		return set.contains(points[next++ & MASK]);
+	}
+	
+	@Benchmark
+	public boolean intersects() {
+		return set.intersects(queries[next++ & MASK]);
+	}
+	
+	/**
+	 * Adds a point in a gap and removes it again.
+	 */
+	@Benchmark
+	public void addRemove() {
+		final Integer e = gaps[next++ & MASK];
+		set.add(e);
+		set.remove(e);
+	}
+	
+	/**
+	 * Adds an open Interval bridging a gap, which coalesces it with both
+	 * neighbours, and removes it again, which splits them apart.
+	 */
+	@Benchmark
+	public void unionRemove() {
+		final Interval<Integer> i = bridges[next++ & MASK];
+		set.union(i);
+		set.remove(i);
+	}
+	
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void iterateIntervals(final Blackhole blackhole) {
+		final Iterator<Interval<Integer>> it = set.iterateIntervals();
+		while (it.hasNext()) {
+			blackhole.consume(it.next());
+		}
+	}
+}
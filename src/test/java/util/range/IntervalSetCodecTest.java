@@ -0,0 +1,91 @@
+package util.range;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks, that sets read back by an {@link IntervalSetCodec} hold the same
+ * Intervals as the sets written.
+ */
+class IntervalSetCodecTest {
+	private static final int ROUNDS = 300;
+	
+	private static <E> List<Interval<E>> intervals(final Iterator<Interval<E>> it) {
+		final List<Interval<E>> intervals = new ArrayList<Interval<E>>();
+		it.forEachRemaining(intervals::add);
+		return intervals;
+	}
+	
+	private static SeparateIntervalSet<Double> randomSet(final Random random, final int n) {
+		final SeparateIntervalSet<Double> set = new SeparateIntervalSet<Double>();
+		for (int k = 0; k < n; k++) {
+			set.union(RangeModel.interval(random));
+		}
+		return set;
+	}
+	
+	@Test
+	void bufferRoundTrip() {
+		final IntervalSetCodec<Double> codec = new IntervalSetCodec<Double>(IntervalSetCodec.ElementCodec.DOUBLE);
+		final Random random = new Random(4);
+		for (int round = 0; round < ROUNDS; round++) {
+			final SeparateIntervalSet<Double> set = randomSet(random, random.nextInt(20));
+			final ByteBuffer buffer = ByteBuffer.allocate(4096);
+			codec.write(set, buffer);
+			buffer.flip();
+			assertEquals(intervals(set.iterateIntervals()), intervals(codec.read(buffer).iterateIntervals()));
+			assertEquals(0, buffer.remaining());
+		}
+	}
+	
+	@Test
+	void channelRoundTrip() throws IOException {
+		final IntervalSetCodec<Long> codec = new IntervalSetCodec<Long>(IntervalSetCodec.ElementCodec.LONG);
+		final Random random = new Random(5);
+		final LongIntervalSet set = new LongIntervalSet();
+		set.union(new Interval<Long>(null, Long.MIN_VALUE + 1, Interval.SUPREMUM_EX_INCLUDED));
+		for (int k = 0; k < 5000; k++) {
+			final long infimum = random.nextLong();
+			set.union(infimum, infimum + random.nextInt(1000), random.nextInt(4) | Interval.INFIMUM_EXISTS
+					| Interval.SUPREMUM_EXISTS);
+		}
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		codec.write(set, Channels.newChannel(out));
+		final SeparateIntervalSet<Long> read = codec.read(Channels.newChannel(new ByteArrayInputStream(out
+				.toByteArray())));
+		assertEquals(intervals(set.iterateIntervals()), intervals(read.iterateIntervals()));
+	}
+	
+	@Test
+	void emptySetRoundTrip() {
+		final IntervalSetCodec<Integer> codec = new IntervalSetCodec<Integer>(IntervalSetCodec.ElementCodec.INTEGER);
+		final ByteBuffer buffer = ByteBuffer.allocate(16);
+		codec.write(new SeparateIntervalSet<Integer>(), buffer);
+		buffer.flip();
+		assertTrue(codec.read(buffer).isEmpty());
+	}
+	
+	@Test
+	void truncatedInputIsRejected() {
+		final IntervalSetCodec<Double> codec = new IntervalSetCodec<Double>(IntervalSetCodec.ElementCodec.DOUBLE);
+		final ByteBuffer buffer = ByteBuffer.allocate(4096);
+		codec.write(randomSet(new Random(6), 10), buffer);
+		buffer.flip();
+		buffer.limit(buffer.limit() - 1);
+		assertThrows(BufferUnderflowException.class, () -> codec.read(buffer));
+	}
+}
@@ -0,0 +1,96 @@
+package util.range;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks, that a file written by {@link MappedLongIntervalSet#write(Range, Path)}
+ * maps to the same set as the Range written.
+ */
+class MappedLongIntervalSetTest {
+	@TempDir
+	Path directory;
+	
+	private static List<Interval<Long>> intervals(final Iterator<Interval<Long>> it) {
+		final List<Interval<Long>> intervals = new ArrayList<Interval<Long>>();
+		it.forEachRemaining(intervals::add);
+		return intervals;
+	}
+	
+	private static LongIntervalSet randomSet(final Random random, final int n, final int domain) {
+		final LongIntervalSet set = new LongIntervalSet();
+		for (int k = 0; k < n; k++) {
+			final long infimum = random.nextInt(domain);
+			set.union(infimum, infimum + random.nextInt(8), random.nextInt(4) | Interval.INFIMUM_EXISTS
+					| Interval.SUPREMUM_EXISTS);
+		}
+		return set;
+	}
+	
+	@Test
+	void fileRoundTrip() throws IOException {
+		final Random random = new Random(7);
+		final Path file = directory.resolve("set.bin");
+		for (int round = 0; round < 50; round++) {
+			final LongIntervalSet set = randomSet(random, random.nextInt(500), 4000);
+			if (random.nextBoolean()) {
+				set.union(new Interval<Long>(null, -10L, Interval.SUPREMUM_EXISTS));
+				set.union(new Interval<Long>(5000L, null, Interval.INFIMUM_EX_INCLUDED));
+			}
+			MappedLongIntervalSet.write(set, file);
+			final MappedLongIntervalSet mapped = MappedLongIntervalSet.open(file);
+			assertEquals(set.size(), mapped.size());
+			assertEquals(intervals(set.iterateIntervals()), intervals(mapped.iterateIntervals()));
+			for (long e = -12; e < 5002; e++) {
+				assertEquals(set.contains(e), mapped.contains(e), "contains(" + e + ")");
+			}
+			assertEquals(set.hasInfimum(), mapped.hasInfimum());
+			assertEquals(set.hasSupremum(), mapped.hasSupremum());
+		}
+	}
+	
+	@Test
+	void writesOtherRanges() throws IOException {
+		final Random random = new Random(8);
+		final LongIntervalSet a = randomSet(random, 200, 2000);
+		final LongIntervalSet b = randomSet(random, 200, 2000);
+		final ConcurrentIntervalSet<Long> concurrent = new ConcurrentIntervalSet<Long>();
+		concurrent.union(a);
+		final Path file = directory.resolve("other.bin");
+		MappedLongIntervalSet.write(concurrent, file);
+		assertEquals(intervals(a.iterateIntervals()), intervals(MappedLongIntervalSet.open(file).iterateIntervals()));
+		final Ranges.Expression<Long> difference = Ranges.difference(a, b);
+		MappedLongIntervalSet.write(difference, file);
+		assertEquals(intervals(difference.iterateIntervals()), intervals(MappedLongIntervalSet.open(file)
+				.iterateIntervals()));
+	}
+	
+	@Test
+	void emptySetRoundTrip() throws IOException {
+		final Path file = directory.resolve("empty.bin");
+		MappedLongIntervalSet.write(new LongIntervalSet(), file);
+		final MappedLongIntervalSet mapped = MappedLongIntervalSet.open(file);
+		assertTrue(mapped.isEmpty());
+		assertFalse(mapped.contains(0L));
+	}
+	
+	@Test
+	void foreignFileIsRejected() throws IOException {
+		final Path file = directory.resolve("foreign.bin");
+		Files.write(file, new byte[64]);
+		assertThrows(IOException.class, () -> MappedLongIntervalSet.open(file));
+	}
+}
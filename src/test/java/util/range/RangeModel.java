@@ -0,0 +1,106 @@
+package util.range;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * A brute-force model of a set of Doubles, that records membership at every
+ * multiple of 0.5 from -1 to DOMAIN + 1. All bounds drawn by
+ * {@link #interval(Random)} are integers from 0 to DOMAIN, so the probes lie
+ * on, between and beyond all bounds and tell included from excluded ones.
+ */
+final class RangeModel {
+	static final int DOMAIN = 40;
+	
+	private final boolean[] members = new boolean[2 * DOMAIN + 5];
+	
+	static double probe(final int k) {
+		return (k - 2) / 2.0;
+	}
+	
+	/**
+	 * Draws a short, sometimes long and rarely unbounded Interval, that may be
+	 * empty.
+	 */
+	static Interval<Double> interval(final Random random) {
+		final int infimum = random.nextInt(DOMAIN);
+		final int supremum = infimum + random.nextInt(random.nextInt(8) == 0 ? DOMAIN - infimum + 1 : 5);
+		int config = random.nextInt(4);
+		if (random.nextInt(16) > 0) {
+			config |= Interval.INFIMUM_EXISTS;
+		} else {
+			config &= ~Interval.INFIMUM_INCLUDED;
+		}
+		if (random.nextInt(16) > 0) {
+			config |= Interval.SUPREMUM_EXISTS;
+		} else {
+			config &= ~Interval.SUPREMUM_INCLUDED;
+		}
+		return new Interval<Double>((double) infimum, (double) supremum, config);
+	}
+	
+	void union(final Interval<Double> i) {
+		for (int k = 0; k < members.length; k++) {
+			members[k] |= i.contains(probe(k));
+		}
+	}
+	
+	void remove(final Interval<Double> i) {
+		for (int k = 0; k < members.length; k++) {
+			members[k] &= !i.contains(probe(k));
+		}
+	}
+	
+	void union(final RangeModel m) {
+		for (int k = 0; k < members.length; k++) {
+			members[k] |= m.members[k];
+		}
+	}
+	
+	void remove(final RangeModel m) {
+		for (int k = 0; k < members.length; k++) {
+			members[k] &= !m.members[k];
+		}
+	}
+	
+	void retain(final RangeModel m) {
+		for (int k = 0; k < members.length; k++) {
+			members[k] &= m.members[k];
+		}
+	}
+	
+	void toggle(final RangeModel m) {
+		for (int k = 0; k < members.length; k++) {
+			members[k] ^= m.members[k];
+		}
+	}
+	
+	/**
+	 * Asserts, that r contains exactly the probes of this model.
+	 */
+	void assertContains(final Range<Double> r) {
+		for (int k = 0; k < members.length; k++) {
+			assertEquals(members[k], r.contains(probe(k)), "contains(" + probe(k) + ") of " + r);
+		}
+	}
+	
+	/**
+	 * Asserts, that the Intervals of it are non-empty, ascending and pairwise
+	 * separated, so touching Intervals have been coalesced.
+	 */
+	static void assertSeparated(final Iterator<Interval<Double>> it) {
+		Interval<Double> previous = null;
+		while (it.hasNext()) {
+			final Interval<Double> i = it.next();
+			assertFalse(i.isEmpty());
+			if (previous != null) {
+				assertTrue(i.compareInfimumToSupremum(previous) > 0, previous + " and " + i + " are not separated");
+			}
+			previous = i;
+		}
+	}
+}
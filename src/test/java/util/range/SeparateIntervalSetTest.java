@@ -0,0 +1,138 @@
+package util.range;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Checks union, removal and the merge-based bulk operations against a
+ * {@link RangeModel}.
+ */
+class SeparateIntervalSetTest {
+	private static final int ROUNDS = 200;
+	private static final int OPERATIONS = 60;
+	
+	static Iterable<Supplier<WritableRange<Double>>> implementations() {
+		return Arrays.<Supplier<WritableRange<Double>>> asList(SeparateIntervalSet::new, InlineIntervalSet::new,
+				ConcurrentIntervalSet::new);
+	}
+	
+	private static SeparateIntervalSet<Double> randomSet(final Random random, final RangeModel model) {
+		final SeparateIntervalSet<Double> set = new SeparateIntervalSet<Double>();
+		final int n = random.nextInt(12);
+		for (int k = 0; k < n; k++) {
+			final Interval<Double> i = RangeModel.interval(random);
+			if (random.nextInt(3) > 0) {
+				set.union(i);
+				model.union(i);
+			} else {
+				set.remove(i);
+				model.remove(i);
+			}
+		}
+		return set;
+	}
+	
+	@ParameterizedTest
+	@MethodSource("implementations")
+	void unionAndRemoveMatchModel(final Supplier<WritableRange<Double>> implementation) {
+		final Random random = new Random(1);
+		for (int round = 0; round < ROUNDS; round++) {
+			final WritableRange<Double> range = implementation.get();
+			final RangeModel model = new RangeModel();
+			for (int k = 0; k < OPERATIONS; k++) {
+				final Interval<Double> i = RangeModel.interval(random);
+				if (random.nextInt(3) > 0) {
+					range.union(i);
+					model.union(i);
+				} else {
+					range.remove(i);
+					model.remove(i);
+				}
+				model.assertContains(range);
+			}
+			RangeModel.assertSeparated(range.toSeparateIntervalSet().iterateIntervals());
+		}
+	}
+	
+	@Test
+	void bulkOperationsMatchModel() {
+		final Random random = new Random(2);
+		for (int round = 0; round < ROUNDS; round++) {
+			final RangeModel model = new RangeModel();
+			final SeparateIntervalSet<Double> set = randomSet(random, model);
+			for (int k = 0; k < 4; k++) {
+				final RangeModel operandModel = new RangeModel();
+				final SeparateIntervalSet<Double> operand = randomSet(random, operandModel);
+				switch (random.nextInt(4)) {
+				case 0:
+					set.union(operand);
+					model.union(operandModel);
+					break;
+				case 1:
+					set.remove(operand);
+					model.remove(operandModel);
+					break;
+				case 2:
+					set.retain(operand);
+					model.retain(operandModel);
+					break;
+				default:
+					set.toggle(operand);
+					model.toggle(operandModel);
+				}
+				model.assertContains(set);
+				RangeModel.assertSeparated(set.iterateIntervals());
+				assertEquals(set.stream().count(), set.size());
+			}
+		}
+	}
+	
+	@Test
+	void mergesMatchModel() {
+		final Random random = new Random(3);
+		for (int round = 0; round < ROUNDS; round++) {
+			final RangeModel a = new RangeModel();
+			final RangeModel b = new RangeModel();
+			final SeparateIntervalSet<Double> sa = randomSet(random, a);
+			final SeparateIntervalSet<Double> sb = randomSet(random, b);
+			final RangeModel union = new RangeModel();
+			union.union(a);
+			union.union(b);
+			final RangeModel intersection = new RangeModel();
+			intersection.union(a);
+			intersection.retain(b);
+			final RangeModel difference = new RangeModel();
+			difference.union(a);
+			difference.remove(b);
+			final RangeModel symmetricDifference = new RangeModel();
+			symmetricDifference.union(a);
+			symmetricDifference.toggle(b);
+			union.assertContains(SeparateIntervalSet.union(sa, sb));
+			intersection.assertContains(SeparateIntervalSet.intersection(sa, sb));
+			difference.assertContains(SeparateIntervalSet.difference(sa, sb));
+			symmetricDifference.assertContains(SeparateIntervalSet.symmetricDifference(sa, sb));
+			RangeModel.assertSeparated(SeparateIntervalSet.union(sa, sb).iterateIntervals());
+			RangeModel.assertSeparated(SeparateIntervalSet.symmetricDifference(sa, sb).iterateIntervals());
+		}
+	}
+	
+	@Test
+	void touchingIntervalsAreCoalesced() {
+		final SeparateIntervalSet<Double> set = new SeparateIntervalSet<Double>();
+		set.union(new Interval<Double>(1.0, 2.0, Interval.INFIMUM_EX_INCLUDED | Interval.SUPREMUM_EXISTS));
+		set.union(new Interval<Double>(2.0, 3.0, Interval.INFIMUM_EX_INCLUDED | Interval.SUPREMUM_EX_INCLUDED));
+		assertEquals("[1.0,3.0]", set.toString());
+		set.remove(2.0);
+		assertEquals("[1.0,2.0)U(2.0,3.0]", set.toString());
+		set.union(new Interval<Double>(0.0, 4.0, Interval.INFIMUM_EXISTS | Interval.SUPREMUM_EXISTS));
+		assertEquals("(0.0,4.0)", set.toString());
+		assertEquals(1, set.size());
+	}
+}
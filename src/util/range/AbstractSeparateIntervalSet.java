@@ -0,0 +1,1642 @@
+package util.range;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The AVL tree of pairwise separated {@link Interval}s behind
+ * {@link SeparateIntervalSet}, {@link PersistentIntervalSet} and
+ * {@link RangeMap}. Changing the tree splits it at both ends of the affected
+ * Interval and joins the untouched parts around the coalesced result, so
+ * every operation is O(log n) regardless of the order in which the Intervals
+ * arrive. Every node is passed through {@link #mutable(TreeNode)} before it
+ * is changed, which lets a subclass decide whether nodes are updated in place
+ * or copied.
+ */
+abstract class AbstractSeparateIntervalSet<E> implements Range<E> {
+	protected final Comparator<? super E> comparator;
+	protected TreeNode<E> root;
+	
+	protected AbstractSeparateIntervalSet(final Comparator<? super E> comparator, final TreeNode<E> root) {
+		this.comparator = comparator;
+		this.root = root;
+	}
+	
+	/**
+	 * Returns node itself, or a copy of it, which may be changed by the
+	 * running operation.
+	 */
+	protected abstract TreeNode<E> mutable(TreeNode<E> node);
+	
+	/**
+	 * Creates the node for an Interval added to the tree. Subclasses may
+	 * return nodes, that keep further data about their subtree up to date in
+	 * {@link TreeNode#update()}.
+	 */
+	protected TreeNode<E> newNode(final Interval<E> i) {
+		return new TreeNode<E>(i);
+	}
+	
+	/**
+	 * Removes the Interval last returned by an iterator. Only supported by
+	 * writable sets.
+	 */
+	protected void iteratorRemove(Interval<E> i) {
+		throw new UnsupportedOperationException();
+	}
+	
+	/**
+	 * Called whenever an added Interval coalesced with Intervals already in
+	 * the tree, so they were merged or extended. An Interval contained in one
+	 * already in the tree changes nothing and is not reported.
+	 */
+	protected void onCoalesce() {
+	}
+	
+	/**
+	 * Called whenever a removed Interval split an Interval in the tree in two.
+	 */
+	protected void onSplit() {
+	}
+	
+	public Comparator<? super E> comparator() {
+		return this.comparator;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return root == null;
+	}
+	
+	@Override
+	public boolean isSet() {
+		return root == null || root.isSet();
+	}
+	
+	@Override
+	public Set<E> toSet() {
+		Set<E> set = new HashSet<E>();
+		if (root != null) {
+			root.addToSet(set);
+		}
+		return set;
+	}
+	
+	@Override
+	public boolean contains(E e) {
+		TreeNode<E> node = root;
+		while (node != null) {
+			if (node.value.contains(e)) {
+				return true;
+			} else if (node.value.isStrictLowerBound(e)) {
+				node = node.left;
+			} else {
+				node = node.right;
+			}
+		}
+		return false;
+	}
+	
+	@Override
+	public boolean intersects(Interval<E> i) {
+		if (i.isEmpty()) {
+			return false;
+		}
+		checkComparator(i);
+		TreeNode<E> node = root;
+		while (node != null) {
+			if (node.value.intersects(i)) {
+				return true;
+			} else if (isAbove(node.value, i, false)) {
+				node = node.left;
+			} else {
+				node = node.right;
+			}
+		}
+		return false;
+	}
+	
+	@Override
+	public boolean intersects(Range<E> r) {
+		if (r.isEmpty() || this.isEmpty()) {
+			return false;
+		}
+		final Iterator<Interval<E>> ia = this.iterateIntervals();
+		final Iterator<Interval<E>> ib = operand(r);
+		Interval<E> a = ia.next();
+		Interval<E> b = ib.next();
+		while (true) {
+			if (a.intersects(b)) {
+				return true;
+			} else if (a.compareSuprema(b) <= 0) {
+				if (!ia.hasNext()) {
+					return false;
+				}
+				a = ia.next();
+			} else {
+				if (!ib.hasNext()) {
+					return false;
+				}
+				b = ib.next();
+			}
+		}
+	}
+	
+	public Iterator<Interval<E>> iterateIntervals() {
+		return new TreeIterator();
+	}
+	
+	/**
+	 * Iterates the parts of the Intervals within window in ascending order.
+	 * The iterator descends directly to the first Interval intersecting
+	 * window and stops after the last one, so it costs O(log n + k) for k
+	 * Intervals.
+	 */
+	public Iterator<Interval<E>> iterateIntervals(final Interval<E> window) {
+		checkComparator(window);
+		return window.isEmpty() ? new SeparateIntervalSet<E>(comparator).iterateIntervals() : new TreeIterator(
+				window);
+	}
+	
+	/**
+	 * Returns a read-only view of the part of this set within window. The
+	 * view reads through to this set, so it reflects all later changes.
+	 */
+	public Range<E> subRange(final Interval<E> window) {
+		checkComparator(window);
+		return new SubRange(window);
+	}
+	
+	/**
+	 * Returns the part of i within window, which must intersect i.
+	 */
+	protected Interval<E> clip(final Interval<E> i, final Interval<E> window) {
+		return span(i.compareInfima(window) >= 0 ? i : window, i.compareSuprema(window) <= 0 ? i : window);
+	}
+	
+	/**
+	 * Returns a sized {@link Spliterator} over the Intervals in ascending
+	 * order, which splits along subtrees, so that parallel streams divide the
+	 * work evenly.
+	 */
+	public Spliterator<Interval<E>> spliterator() {
+		return new TreeSpliterator(root);
+	}
+	
+	public Stream<Interval<E>> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+	
+	public Stream<Interval<E>> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+	
+	/**
+	 * Looks up a batch of elements, which must be sorted in ascending order.
+	 * The tree is walked once alongside the batch, skipping the Intervals
+	 * between two consecutive elements in O(log d), so a batch of q elements
+	 * costs O(q log(n/q)) instead of O(q log n).
+	 * 
+	 * @return The indices of the elements contained in this set.
+	 */
+	public BitSet containsAll(final E[] sortedKeys) {
+		final BitSet result = new BitSet(sortedKeys.length);
+		final TreeIterator it = new TreeIterator();
+		for (int k = 0; k < sortedKeys.length; k++) {
+			final Interval<E> i = it.seek(sortedKeys[k]);
+			if (i != null && i.contains(sortedKeys[k])) {
+				result.set(k);
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Looks up a stream of elements, which must be sorted in ascending order,
+	 * in the same way as {@link #containsAll(Object[])}.
+	 * 
+	 * @return For every element the Interval containing it, or null if there
+	 *         is none.
+	 */
+	public Iterator<Interval<E>> locate(final Iterator<E> sortedKeys) {
+		final TreeIterator it = new TreeIterator();
+		return new Iterator<Interval<E>>() {
+			@Override
+			public boolean hasNext() {
+				return sortedKeys.hasNext();
+			}
+			
+			@Override
+			public Interval<E> next() {
+				final E e = sortedKeys.next();
+				final Interval<E> i = it.seek(e);
+				return i != null && i.contains(e) ? i : null;
+			}
+		};
+	}
+	
+	/**
+	 * Iterates the Intervals in descending order.
+	 */
+	public Iterator<Interval<E>> iterateIntervalsDescending() {
+		return new DescendingIterator();
+	}
+	
+	/**
+	 * Returns the number of Intervals in O(1). For a {@link RangeMap} this is
+	 * the number of keys.
+	 */
+	public int size() {
+		return count(root);
+	}
+	
+	/**
+	 * Returns the number of Intervals lying below e, which is the index of the
+	 * Interval containing e or else of the first one above it.
+	 */
+	public int rank(final E e) {
+		int rank = 0;
+		TreeNode<E> node = root;
+		while (node != null) {
+			if (node.value.isStrictUpperBound(e)) {
+				rank += count(node.left) + 1;
+				node = node.right;
+			} else {
+				node = node.left;
+			}
+		}
+		return rank;
+	}
+	
+	/**
+	 * Returns the Interval with index k in ascending order.
+	 * 
+	 * @throws IndexOutOfBoundsException
+	 *             If k is negative or not less than {@link #size()}.
+	 */
+	public Interval<E> intervalAt(int k) {
+		if (k < 0 || k >= count(root)) {
+			throw new IndexOutOfBoundsException("Index: " + k + ", Size: " + count(root));
+		}
+		TreeNode<E> node = root;
+		while (true) {
+			final int c = count(node.left);
+			if (k < c) {
+				node = node.left;
+			} else if (k == c) {
+				return node.value;
+			} else {
+				k -= c + 1;
+				node = node.right;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the number of Intervals intersecting i, which are all Intervals
+	 * lying neither below nor above it.
+	 */
+	public int countIntersecting(final Interval<E> i) {
+		checkComparator(i);
+		if (i.isEmpty()) {
+			return 0;
+		}
+		int count = count(root);
+		TreeNode<E> node = root;
+		while (node != null) {
+			if (isBelow(node.value, i, false)) {
+				count -= count(node.left) + 1;
+				node = node.right;
+			} else {
+				node = node.left;
+			}
+		}
+		node = root;
+		while (node != null) {
+			if (isAbove(node.value, i, false)) {
+				count -= count(node.right) + 1;
+				node = node.left;
+			} else {
+				node = node.right;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Returns the Interval containing e, or null if there is none.
+	 */
+	public Interval<E> intervalContaining(final E e) {
+		TreeNode<E> node = root;
+		while (node != null) {
+			if (node.value.contains(e)) {
+				return node.value;
+			} else if (node.value.isStrictLowerBound(e)) {
+				node = node.left;
+			} else {
+				node = node.right;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Returns the highest Interval, that contains e or lies below it, or null
+	 * if there is none.
+	 */
+	public Interval<E> floorInterval(final E e) {
+		Interval<E> floor = null;
+		TreeNode<E> node = root;
+		while (node != null) {
+			if (node.value.isStrictLowerBound(e)) {
+				node = node.left;
+			} else {
+				floor = node.value;
+				node = node.right;
+			}
+		}
+		return floor;
+	}
+	
+	/**
+	 * Returns the lowest Interval, that contains e or lies above it, or null
+	 * if there is none.
+	 */
+	public Interval<E> ceilingInterval(final E e) {
+		Interval<E> ceiling = null;
+		TreeNode<E> node = root;
+		while (node != null) {
+			if (node.value.isStrictUpperBound(e)) {
+				node = node.right;
+			} else {
+				ceiling = node.value;
+				node = node.left;
+			}
+		}
+		return ceiling;
+	}
+	
+	/**
+	 * Returns the maximal Interval of elements not in this set, that contains
+	 * e or, if e is contained in this set, follows it, or null if there is
+	 * none.
+	 */
+	public Interval<E> nextGap(final E e) {
+		Interval<E> lower = intervalContaining(e);
+		if (lower == null) {
+			return gap(floorInterval(e), ceilingInterval(e));
+		}
+		Interval<E> upper = lowestAbove(lower);
+		// Intervals of a RangeMap may touch, which leaves no gap between them.
+		while (upper != null && upper.compareInfimumToSupremum(lower) == 0) {
+			lower = upper;
+			upper = lowestAbove(lower);
+		}
+		return gap(lower, upper);
+	}
+	
+	/**
+	 * Returns the maximal Interval of elements not in this set, that contains
+	 * e or, if e is contained in this set, precedes it, or null if there is
+	 * none.
+	 */
+	public Interval<E> previousGap(final E e) {
+		Interval<E> upper = intervalContaining(e);
+		if (upper == null) {
+			return gap(floorInterval(e), ceilingInterval(e));
+		}
+		Interval<E> lower = highestBelow(upper);
+		while (lower != null && upper.compareInfimumToSupremum(lower) == 0) {
+			upper = lower;
+			lower = highestBelow(upper);
+		}
+		return gap(lower, upper);
+	}
+	
+	private Interval<E> lowestAbove(final Interval<E> i) {
+		Interval<E> found = null;
+		TreeNode<E> node = root;
+		while (node != null) {
+			if (isAbove(node.value, i, false)) {
+				found = node.value;
+				node = node.left;
+			} else {
+				node = node.right;
+			}
+		}
+		return found;
+	}
+	
+	private Interval<E> highestBelow(final Interval<E> i) {
+		Interval<E> found = null;
+		TreeNode<E> node = root;
+		while (node != null) {
+			if (isBelow(node.value, i, false)) {
+				found = node.value;
+				node = node.right;
+			} else {
+				node = node.left;
+			}
+		}
+		return found;
+	}
+	
+	/**
+	 * Returns the elements between two consecutive Intervals, either of which
+	 * may be null if there is none, or null if they leave no room.
+	 */
+	private Interval<E> gap(final Interval<E> lower, final Interval<E> upper) {
+		if ((lower != null && !lower.hasSupremum()) || (upper != null && !upper.hasInfimum())) {
+			return null;
+		}
+		int config = 0;
+		if (lower != null) {
+			config |= Interval.INFIMUM_EXISTS | (lower.isSupremumIncluded() ? 0 : Interval.INFIMUM_INCLUDED);
+		}
+		if (upper != null) {
+			config |= Interval.SUPREMUM_EXISTS | (upper.isInfimumIncluded() ? 0 : Interval.SUPREMUM_INCLUDED);
+		}
+		return new Interval<E>(comparator, lower == null ? null : lower.supremum(), upper == null ? null : upper
+				.infimum(), config);
+	}
+	
+	private Interval<E> first() {
+		TreeNode<E> node = root;
+		while (node.left != null) {
+			node = node.left;
+		}
+		return node.value;
+	}
+	
+	private Interval<E> last() {
+		TreeNode<E> node = root;
+		while (node.right != null) {
+			node = node.right;
+		}
+		return node.value;
+	}
+	
+	@Override
+	public boolean hasInfimum() {
+		return root != null && first().hasInfimum();
+	}
+	
+	@Override
+	public E infimum() {
+		if (root == null) {
+			throw new NoSuchExtremumException("Infimum");
+		} else {
+			return first().infimum();
+		}
+	}
+	
+	@Override
+	public boolean isInfimumIncluded() {
+		if (root == null) {
+			throw new NoSuchExtremumException("Infimum");
+		} else {
+			return first().isInfimumIncluded();
+		}
+	}
+	
+	@Override
+	public boolean hasSupremum() {
+		return root != null && last().hasSupremum();
+	}
+	
+	@Override
+	public E supremum() {
+		if (root == null) {
+			throw new NoSuchExtremumException("Supremum");
+		} else {
+			return last().supremum();
+		}
+	}
+	
+	@Override
+	public boolean isSupremumIncluded() {
+		if (root == null) {
+			throw new NoSuchExtremumException("Supremum");
+		} else {
+			return last().isSupremumIncluded();
+		}
+	}
+	
+	@Override
+	public boolean isLowerBound(E e) {
+		return root == null || first().isLowerBound(e);
+	}
+	
+	@Override
+	public boolean isStrictLowerBound(E e) {
+		return root == null || first().isStrictLowerBound(e);
+	}
+	
+	@Override
+	public boolean isUpperBound(E e) {
+		return root == null || last().isUpperBound(e);
+	}
+	
+	@Override
+	public boolean isStrictUpperBound(E e) {
+		return root == null || last().isStrictUpperBound(e);
+	}
+	
+	/**
+	 * Returns an immutable copy of this set, laid out for fast lookups. See
+	 * {@link FrozenIntervalSet}.
+	 */
+	public FrozenIntervalSet<E> freeze() {
+		final List<Interval<E>> intervals = new ArrayList<Interval<E>>();
+		final Iterator<Interval<E>> it = iterateIntervals();
+		while (it.hasNext()) {
+			intervals.add(it.next());
+		}
+		return new FrozenIntervalSet<E>(comparator, intervals);
+	}
+	
+	/**
+	 * Returns the current structure of the tree, which is computed in O(n).
+	 * Only writable sets count their operations.
+	 */
+	public IntervalSetStats stats() {
+		return stats(0, 0);
+	}
+	
+	protected IntervalSetStats stats(final long coalesces, final long splits) {
+		final long[] counts = new long[2];
+		countDepths(root, 1, counts);
+		return new IntervalSetStats((int) counts[0], height(root), counts[0] == 0 ? 0 : (double) counts[1]
+				/ counts[0], coalesces, splits);
+	}
+	
+	/**
+	 * Adds the number of nodes below node to counts[0] and the sum of their
+	 * depths to counts[1].
+	 */
+	private static void countDepths(final TreeNode<?> node, final int depth, final long[] counts) {
+		if (node != null) {
+			counts[0]++;
+			counts[1] += depth;
+			countDepths(node.left, depth + 1, counts);
+			countDepths(node.right, depth + 1, counts);
+		}
+	}
+	
+	@Override
+	public String toString() {
+		if (root == null) {
+			return "O";
+		} else {
+			Iterator<Interval<E>> it = iterateIntervals();
+			StringBuilder sb = new StringBuilder(it.next().toString());
+			while (it.hasNext()) {
+				sb.append("U").append(it.next().toString());
+			}
+			return sb.toString();
+		}
+	}
+	
+	protected Interval<E> point(E e) {
+		return new Interval<E>(comparator, e, e, Interval.INFIMUM_EX_INCLUDED | Interval.SUPREMUM_EX_INCLUDED);
+	}
+	
+	/**
+	 * Returns the root of the tree after adding the non-empty Interval i.
+	 */
+	protected TreeNode<E> united(Interval<E> i) {
+		return united(i, null);
+	}
+	
+	/**
+	 * Returns the root of the tree after adding the non-empty Interval i and
+	 * records the replaced Intervals in changes, unless it is null.
+	 */
+	protected TreeNode<E> united(final Interval<E> i, final Changes<E> changes) {
+		checkComparator(i);
+		final Interval<E> merged = shutInRight(shutInLeft(i));
+		final Split<E> split = new Split<E>();
+		split(root, merged, true, false, split);
+		final TreeNode<E> below = split.left;
+		split(split.right, merged, true, true, split);
+		if (split.left != null && (split.left.left != null || split.left.right != null
+				|| split.left.value.compareInfima(merged) != 0 || split.left.value.compareSuprema(merged) != 0)) {
+			onCoalesce();
+		}
+		if (changes != null) {
+			changes.replace(split.left, merged, null);
+		}
+		return join(below, newNode(merged), split.right);
+	}
+	
+	/**
+	 * Returns the root of the tree after removing the non-empty Interval i.
+	 */
+	protected TreeNode<E> removed(Interval<E> i) {
+		return removed(i, null);
+	}
+	
+	/**
+	 * Returns the root of the tree after removing the non-empty Interval i and
+	 * records the replaced Intervals in changes, unless it is null.
+	 */
+	protected TreeNode<E> removed(final Interval<E> i, final Changes<E> changes) {
+		checkComparator(i);
+		final Interval<E> lower = shutOutLeft(i);
+		final Interval<E> upper = shutOutRight(i);
+		final Split<E> split = new Split<E>();
+		split(root, i, false, false, split);
+		final TreeNode<E> below = split.left;
+		split(split.right, i, false, true, split);
+		TreeNode<E> above = split.right;
+		if (lower != null && upper != null && split.left.left == null && split.left.right == null) {
+			onSplit();
+		}
+		if (changes != null) {
+			changes.replace(split.left, lower, upper);
+		}
+		if (upper != null) {
+			above = join(null, newNode(upper), above);
+		}
+		return lower == null ? join(below, above) : join(below, newNode(lower), above);
+	}
+	
+	/**
+	 * Returns the sorted Intervals of r, which must use the same comparator.
+	 */
+	protected Iterator<Interval<E>> operand(final Range<E> r) {
+		if (r instanceof AbstractSeparateIntervalSet) {
+			final AbstractSeparateIntervalSet<E> other = (AbstractSeparateIntervalSet<E>) r;
+			checkComparator(other);
+			return other.iterateIntervals();
+		}
+		final SeparateIntervalSet<E> other = r.toSeparateIntervalSet();
+		checkComparator(other);
+		return other.iterateIntervals();
+	}
+	
+	protected static <E> Interval<E> next(final Iterator<Interval<E>> it) {
+		return it.hasNext() ? it.next() : null;
+	}
+	
+	/**
+	 * Appends i to sorted separated Intervals, coalescing it with the last one
+	 * if they are connected. i must not start below the last Interval.
+	 */
+	protected void append(final List<Interval<E>> intervals, final Interval<E> i) {
+		final int last = intervals.size() - 1;
+		if (last < 0 || isAbove(i, intervals.get(last), true)) {
+			intervals.add(i);
+		} else if (i.compareSuprema(intervals.get(last)) > 0) {
+			intervals.set(last, span(intervals.get(last), i));
+		}
+	}
+	
+	protected List<Interval<E>> unionOf(final Iterator<Interval<E>> ia, final Iterator<Interval<E>> ib) {
+		return unionOf(ia, ib, false);
+	}
+	
+	/**
+	 * Merges the Intervals of ia and ib. If counting, every Interval of ib,
+	 * that is connected to an Interval of ia without being contained in it,
+	 * is reported by {@link #onCoalesce()}, as if it was added alone.
+	 */
+	protected List<Interval<E>> unionOf(final Iterator<Interval<E>> ia, final Iterator<Interval<E>> ib,
+			final boolean counting) {
+		final List<Interval<E>> result = new ArrayList<Interval<E>>();
+		Interval<E> previous = null;
+		Interval<E> a = next(ia);
+		Interval<E> b = next(ib);
+		while (a != null || b != null) {
+			if (b == null || (a != null && a.compareInfima(b) <= 0)) {
+				append(result, a);
+				previous = a;
+				a = next(ia);
+			} else {
+				// Only previous can contain b, as a starts above it.
+				if (counting && ((previous != null && !isAbove(b, previous, true)) || (a != null && !isAbove(a, b,
+						true))) && (previous == null || previous.compareSuprema(b) < 0)) {
+					onCoalesce();
+				}
+				append(result, b);
+				b = next(ib);
+			}
+		}
+		return result;
+	}
+	
+	protected List<Interval<E>> intersectionOf(final Iterator<Interval<E>> ia, final Iterator<Interval<E>> ib) {
+		return intersectionOf(ia, ib, false);
+	}
+	
+	/**
+	 * Intersects the Intervals of ia and ib. If counting, every additional
+	 * part an Interval of ia is cut into is reported by {@link #onSplit()}.
+	 */
+	protected List<Interval<E>> intersectionOf(final Iterator<Interval<E>> ia, final Iterator<Interval<E>> ib,
+			final boolean counting) {
+		final List<Interval<E>> result = new ArrayList<Interval<E>>();
+		Interval<E> cut = null;
+		Interval<E> a = next(ia);
+		Interval<E> b = next(ib);
+		while (a != null && b != null) {
+			final int c = a.compareSuprema(b);
+			if (a.intersects(b)) {
+				if (counting && cut == a) {
+					onSplit();
+				}
+				cut = a;
+				result.add(span(a.compareInfima(b) >= 0 ? a : b, c <= 0 ? a : b));
+			}
+			if (c <= 0) {
+				a = next(ia);
+			} else {
+				b = next(ib);
+			}
+		}
+		return result;
+	}
+	
+	protected List<Interval<E>> differenceOf(final Iterator<Interval<E>> ia, final Iterator<Interval<E>> ib) {
+		return differenceOf(ia, ib, false);
+	}
+	
+	/**
+	 * Removes the Intervals of ib from those of ia. If counting, every
+	 * Interval of ib, that cuts one of ia in two, is reported by
+	 * {@link #onSplit()}, as if it was removed alone.
+	 */
+	protected List<Interval<E>> differenceOf(final Iterator<Interval<E>> ia, final Iterator<Interval<E>> ib,
+			final boolean counting) {
+		final List<Interval<E>> result = new ArrayList<Interval<E>>();
+		Interval<E> a = next(ia);
+		Interval<E> b = next(ib);
+		while (a != null) {
+			while (b != null && isBelow(b, a, false)) {
+				b = next(ib);
+			}
+			if (b == null || isAbove(b, a, false)) {
+				result.add(a);
+				a = next(ia);
+			} else {
+				if (a.compareInfima(b) < 0) {
+					result.add(nonEmptyUpperRemove(b, a));
+					if (counting && a.compareSuprema(b) > 0) {
+						onSplit();
+					}
+				}
+				if (a.compareSuprema(b) > 0) {
+					a = nonEmptyLowerRemove(b, a);
+					b = next(ib);
+				} else {
+					a = next(ia);
+				}
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Builds a balanced tree of sorted separated Intervals in O(n).
+	 */
+	protected TreeNode<E> build(final List<Interval<E>> intervals, final int from, final int to) {
+		if (from >= to) {
+			return null;
+		}
+		final int mid = (from + to) >>> 1;
+		final TreeNode<E> node = newNode(intervals.get(mid));
+		node.left = build(intervals, from, mid);
+		node.right = build(intervals, mid + 1, to);
+		node.update();
+		return node;
+	}
+	
+	protected void checkComparator(AbstractSeparateIntervalSet<E> other) {
+		if (other.comparator != comparator) {
+			throw new IncompatibleComparatorException();
+		}
+	}
+	
+	protected void checkComparator(Interval<E> i) {
+		if (i.comparator() != comparator) {
+			throw new IncompatibleComparatorException();
+		}
+	}
+	
+	/**
+	 * Whether value lies below i. If touching, value must be separated from i
+	 * by a gap, otherwise it only must not share an element with i.
+	 */
+	protected boolean isBelow(Interval<E> value, Interval<E> i, boolean touching) {
+		final int c = i.compareInfimumToSupremum(value);
+		return touching ? c > 0 : c >= 0;
+	}
+	
+	/**
+	 * Whether value lies above i. If touching, value must be separated from i
+	 * by a gap, otherwise it only must not share an element with i.
+	 */
+	protected boolean isAbove(Interval<E> value, Interval<E> i, boolean touching) {
+		final int c = value.compareInfimumToSupremum(i);
+		return touching ? c > 0 : c >= 0;
+	}
+	
+	protected Interval<E> span(Interval<E> lower, Interval<E> upper) {
+		if (lower == upper) {
+			return lower;
+		}
+		return new Interval<E>(comparator, lower.hasInfimum() ? lower.infimum() : null, upper.hasSupremum()
+				? upper.supremum()
+				: null, (lower.config & Interval.INFIMUM_EX_INCLUDED) | (upper.config & Interval.SUPREMUM_EX_INCLUDED));
+	}
+	
+	/**
+	 * Extends i to the lower end of the lowest Interval connected to i.
+	 * 
+	 * @param i
+	 *            A non-empty {@link Interval} to add.
+	 * @return i, or a new Interval if it had to be extended.
+	 */
+	private Interval<E> shutInLeft(Interval<E> i) {
+		Interval<E> lowest = null;
+		TreeNode<E> node = root;
+		while (node != null) {
+			if (isBelow(node.value, i, true)) {
+				node = node.right;
+			} else {
+				if (!isAbove(node.value, i, true)) {
+					lowest = node.value;
+				}
+				node = node.left;
+			}
+		}
+		return lowest == null || lowest.compareInfima(i) >= 0 ? i : span(lowest, i);
+	}
+	
+	/**
+	 * Extends i to the upper end of the highest Interval connected to i.
+	 * 
+	 * @param i
+	 *            A non-empty {@link Interval} to add.
+	 * @return i, or a new Interval if it had to be extended.
+	 */
+	private Interval<E> shutInRight(Interval<E> i) {
+		Interval<E> highest = null;
+		TreeNode<E> node = root;
+		while (node != null) {
+			if (isAbove(node.value, i, true)) {
+				node = node.left;
+			} else {
+				if (!isBelow(node.value, i, true)) {
+					highest = node.value;
+				}
+				node = node.right;
+			}
+		}
+		return highest == null || highest.compareSuprema(i) <= 0 ? i : span(i, highest);
+	}
+	
+	protected Interval<E> nonEmptyLowerRemove(Interval<E> i, Interval<E> from) {
+		return new Interval<E>(from.comparator(), i.supremum(), from.hasSupremum() ? from.supremum() : null,
+				(Interval.INFIMUM_INCLUDED & (~i.config >> 1)) | Interval.INFIMUM_EXISTS
+						| (from.config & Interval.SUPREMUM_EX_INCLUDED));
+	}
+	
+	protected Interval<E> nonEmptyUpperRemove(Interval<E> i, Interval<E> from) {
+		return new Interval<E>(from.comparator(), from.hasInfimum() ? from.infimum() : null, i.infimum(),
+				(Interval.SUPREMUM_INCLUDED & (~i.config << 1)) | Interval.SUPREMUM_EXISTS
+						| (from.config & Interval.INFIMUM_EX_INCLUDED));
+	}
+	
+	/**
+	 * Finds the lowest Interval intersecting i and returns what is left of it
+	 * below i.
+	 * 
+	 * @param i
+	 *            A non-empty {@link Interval} to remove.
+	 * @return The remainder below i, or null if there is none.
+	 */
+	private Interval<E> shutOutLeft(Interval<E> i) {
+		Interval<E> lowest = null;
+		TreeNode<E> node = root;
+		while (node != null) {
+			if (isBelow(node.value, i, false)) {
+				node = node.right;
+			} else {
+				if (!isAbove(node.value, i, false)) {
+					lowest = node.value;
+				}
+				node = node.left;
+			}
+		}
+		return lowest == null || lowest.compareInfima(i) >= 0 ? null : nonEmptyUpperRemove(i, lowest);
+	}
+	
+	/**
+	 * Finds the highest Interval intersecting i and returns what is left of it
+	 * above i.
+	 * 
+	 * @param i
+	 *            A non-empty {@link Interval} to remove.
+	 * @return The remainder above i, or null if there is none.
+	 */
+	private Interval<E> shutOutRight(Interval<E> i) {
+		Interval<E> highest = null;
+		TreeNode<E> node = root;
+		while (node != null) {
+			if (isAbove(node.value, i, false)) {
+				node = node.left;
+			} else {
+				if (!isBelow(node.value, i, false)) {
+					highest = node.value;
+				}
+				node = node.right;
+			}
+		}
+		return highest == null || highest.compareSuprema(i) <= 0 ? null : nonEmptyLowerRemove(i, highest);
+	}
+	
+	/**
+	 * Splits the tree below node into the Intervals before and after a cut at
+	 * i. If upper, the cut is placed above i, separating all Intervals lying
+	 * above i into out.right, otherwise it is placed below i, separating all
+	 * Intervals lying below i into out.left. The nodes are reused.
+	 */
+	protected void split(TreeNode<E> node, Interval<E> i, boolean touching, boolean upper, Split<E> out) {
+		if (node == null) {
+			out.left = null;
+			out.right = null;
+		} else if (upper ? !isAbove(node.value, i, touching) : isBelow(node.value, i, touching)) {
+			final TreeNode<E> left = node.left;
+			split(node.right, i, touching, upper, out);
+			out.left = join(left, node, out.left);
+		} else {
+			final TreeNode<E> right = node.right;
+			split(node.left, i, touching, upper, out);
+			out.right = join(out.right, node, right);
+		}
+	}
+	
+	protected static int height(TreeNode<?> node) {
+		return node == null ? 0 : node.height;
+	}
+	
+	protected static int count(TreeNode<?> node) {
+		return node == null ? 0 : node.count;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static <E> TreeNode<E>[] newPath(final int height) {
+		return (TreeNode<E>[]) new TreeNode<?>[Math.max(height, 1)];
+	}
+	
+	/**
+	 * Joins two trees and a node lying between them into one balanced tree.
+	 * All Intervals in left must lie below middle, all in right above it.
+	 */
+	protected TreeNode<E> join(TreeNode<E> left, TreeNode<E> middle, TreeNode<E> right) {
+		final int hl = height(left);
+		final int hr = height(right);
+		if (hl > hr + 1) {
+			final TreeNode<E> node = mutable(left);
+			node.right = join(left.right, middle, right);
+			return balance(node);
+		} else if (hr > hl + 1) {
+			final TreeNode<E> node = mutable(right);
+			node.left = join(left, middle, right.left);
+			return balance(node);
+		} else {
+			final TreeNode<E> node = mutable(middle);
+			node.left = left;
+			node.right = right;
+			node.update();
+			return node;
+		}
+	}
+	
+	protected TreeNode<E> join(TreeNode<E> left, TreeNode<E> right) {
+		if (left == null) {
+			return right;
+		} else if (right == null) {
+			return left;
+		}
+		TreeNode<E> first = right;
+		while (first.left != null) {
+			first = first.left;
+		}
+		return join(left, first, removeFirst(right));
+	}
+	
+	private TreeNode<E> removeFirst(TreeNode<E> node) {
+		if (node.left == null) {
+			return node.right;
+		}
+		final TreeNode<E> copy = mutable(node);
+		copy.left = removeFirst(node.left);
+		return balance(copy);
+	}
+	
+	/**
+	 * Restores the balance of a mutable node, whose subtrees differ in height
+	 * by at most two.
+	 */
+	private TreeNode<E> balance(TreeNode<E> node) {
+		final int b = height(node.left) - height(node.right);
+		if (b > 1) {
+			if (height(node.left.left) < height(node.left.right)) {
+				node.left = rotateLeft(mutable(node.left));
+			}
+			return rotateRight(node);
+		} else if (b < -1) {
+			if (height(node.right.right) < height(node.right.left)) {
+				node.right = rotateRight(mutable(node.right));
+			}
+			return rotateLeft(node);
+		}
+		node.update();
+		return node;
+	}
+	
+	private TreeNode<E> rotateLeft(TreeNode<E> node) {
+		final TreeNode<E> right = mutable(node.right);
+		node.right = right.left;
+		node.update();
+		right.left = node;
+		right.update();
+		return right;
+	}
+	
+	private TreeNode<E> rotateRight(TreeNode<E> node) {
+		final TreeNode<E> left = mutable(node.left);
+		node.left = left.right;
+		node.update();
+		left.right = node;
+		left.update();
+		return left;
+	}
+	
+	/**
+	 * Collects the Intervals, that single updates take out of the tree and put
+	 * into it, for change listeners. Several updates may be collected into one
+	 * change, an Interval put in and taken out again then cancels out.
+	 */
+	static final class Changes<E> {
+		private final List<Interval<E>> removed = new ArrayList<Interval<E>>();
+		private final Set<Interval<E>> added = Collections.newSetFromMap(
+				new IdentityHashMap<Interval<E>, Boolean>());
+		
+		void replace(final TreeNode<E> node, final Interval<E> added1, final Interval<E> added2) {
+			remove(node);
+			if (added1 != null) {
+				added.add(added1);
+			}
+			if (added2 != null) {
+				added.add(added2);
+			}
+		}
+		
+		private void remove(final TreeNode<E> node) {
+			if (node != null) {
+				remove(node.left);
+				if (!added.remove(node.value)) {
+					removed.add(node.value);
+				}
+				remove(node.right);
+			}
+		}
+		
+		/**
+		 * Returns the collected change of the given kind, or null if the
+		 * Intervals put into the tree equal those taken out.
+		 */
+		IntervalSetChange<E> change(final IntervalSetChange.Kind kind) {
+			final List<Interval<E>> after = new ArrayList<Interval<E>>(added);
+			removed.sort(Interval::compareInfima);
+			after.sort(Interval::compareInfima);
+			return IntervalSetChange.of(kind, removed.iterator(), after.iterator());
+		}
+	}
+	
+	protected static class Split<E> {
+		protected TreeNode<E> left;
+		protected TreeNode<E> right;
+	}
+	
+	protected static class TreeNode<E> {
+		protected TreeNode<E> left;
+		protected Interval<E> value;
+		protected TreeNode<E> right;
+		protected int height;
+		/**
+		 * The number of nodes in this subtree.
+		 */
+		protected int count;
+		
+		public TreeNode(Interval<E> value) {
+			this.value = value;
+			this.height = 1;
+			this.count = 1;
+		}
+		
+		public TreeNode(TreeNode<E> node) {
+			this.left = node.left;
+			this.value = node.value;
+			this.right = node.right;
+			this.height = node.height;
+			this.count = node.count;
+		}
+		
+		public void update() {
+			height = Math.max(height(left), height(right)) + 1;
+			count = count(left) + count(right) + 1;
+		}
+		
+		public void addToSet(Set<E> set) {
+			set.addAll(value.toSet());
+			if (left != null) {
+				left.addToSet(set);
+			}
+			if (right != null) {
+				right.addToSet(set);
+			}
+		}
+		
+		public boolean isSet() {
+			return value.isSet() && (left == null || left.isSet()) && (right == null || right.isSet());
+		}
+	}
+	
+	private class SubRange implements Range<E> {
+		private final Interval<E> window;
+		
+		public SubRange(final Interval<E> window) {
+			this.window = window;
+		}
+		
+		public Iterator<Interval<E>> iterateIntervals() {
+			return AbstractSeparateIntervalSet.this.iterateIntervals(window);
+		}
+		
+		private Interval<E> first() {
+			final Iterator<Interval<E>> it = iterateIntervals();
+			return it.hasNext() ? it.next() : null;
+		}
+		
+		private Interval<E> last() {
+			Interval<E> highest = null;
+			TreeNode<E> node = window.isEmpty() ? null : root;
+			while (node != null) {
+				if (isAbove(node.value, window, false)) {
+					node = node.left;
+				} else {
+					if (!isBelow(node.value, window, false)) {
+						highest = node.value;
+					}
+					node = node.right;
+				}
+			}
+			return highest == null ? null : clip(highest, window);
+		}
+		
+		@Override
+		public boolean isEmpty() {
+			return !iterateIntervals().hasNext();
+		}
+		
+		@Override
+		public boolean isSet() {
+			final Iterator<Interval<E>> it = iterateIntervals();
+			while (it.hasNext()) {
+				if (!it.next().isSet()) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		@Override
+		public Set<E> toSet() {
+			final Set<E> set = new HashSet<E>();
+			final Iterator<Interval<E>> it = iterateIntervals();
+			while (it.hasNext()) {
+				set.addAll(it.next().toSet());
+			}
+			return set;
+		}
+		
+		@Override
+		public boolean contains(final E e) {
+			return window.contains(e) && AbstractSeparateIntervalSet.this.contains(e);
+		}
+		
+		@Override
+		public boolean intersects(final Interval<E> i) {
+			checkComparator(i);
+			return i.intersects(window) && AbstractSeparateIntervalSet.this.intersects(clip(i, window));
+		}
+		
+		@Override
+		public boolean intersects(final Range<E> r) {
+			final Iterator<Interval<E>> it = operand(r);
+			while (it.hasNext()) {
+				if (intersects(it.next())) {
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		@Override
+		public boolean hasInfimum() {
+			final Interval<E> first = first();
+			return first != null && first.hasInfimum();
+		}
+		
+		@Override
+		public E infimum() {
+			final Interval<E> first = first();
+			if (first == null) {
+				throw new NoSuchExtremumException("Infimum");
+			}
+			return first.infimum();
+		}
+		
+		@Override
+		public boolean isInfimumIncluded() {
+			final Interval<E> first = first();
+			if (first == null) {
+				throw new NoSuchExtremumException("Infimum");
+			}
+			return first.isInfimumIncluded();
+		}
+		
+		@Override
+		public boolean hasSupremum() {
+			final Interval<E> last = last();
+			return last != null && last.hasSupremum();
+		}
+		
+		@Override
+		public E supremum() {
+			final Interval<E> last = last();
+			if (last == null) {
+				throw new NoSuchExtremumException("Supremum");
+			}
+			return last.supremum();
+		}
+		
+		@Override
+		public boolean isSupremumIncluded() {
+			final Interval<E> last = last();
+			if (last == null) {
+				throw new NoSuchExtremumException("Supremum");
+			}
+			return last.isSupremumIncluded();
+		}
+		
+		@Override
+		public boolean isLowerBound(final E e) {
+			final Interval<E> first = first();
+			return first == null || first.isLowerBound(e);
+		}
+		
+		@Override
+		public boolean isUpperBound(final E e) {
+			final Interval<E> last = last();
+			return last == null || last.isUpperBound(e);
+		}
+		
+		@Override
+		public boolean isStrictLowerBound(final E e) {
+			final Interval<E> first = first();
+			return first == null || first.isStrictLowerBound(e);
+		}
+		
+		@Override
+		public boolean isStrictUpperBound(final E e) {
+			final Interval<E> last = last();
+			return last == null || last.isStrictUpperBound(e);
+		}
+		
+		@Override
+		public SeparateIntervalSet<E> toSeparateIntervalSet() {
+			final List<Interval<E>> intervals = new ArrayList<Interval<E>>();
+			final Iterator<Interval<E>> it = iterateIntervals();
+			while (it.hasNext()) {
+				intervals.add(it.next());
+			}
+			return SeparateIntervalSet.of(comparator, intervals);
+		}
+		
+		@Override
+		public String toString() {
+			final Iterator<Interval<E>> it = iterateIntervals();
+			if (!it.hasNext()) {
+				return "O";
+			}
+			final StringBuilder sb = new StringBuilder(it.next().toString());
+			while (it.hasNext()) {
+				sb.append("U").append(it.next().toString());
+			}
+			return sb.toString();
+		}
+	}
+	
+	private class DescendingIterator implements Iterator<Interval<E>> {
+		/**
+		 * path[0..depth) holds the TreeNodes still to be returned, whose right
+		 * subtrees have already been visited. The next node is on top.
+		 */
+		private TreeNode<E>[] path;
+		private int depth;
+		
+		public DescendingIterator() {
+			path = newPath(height(root));
+			depth = 0;
+			descend(root);
+		}
+		
+		private void descend(TreeNode<E> node) {
+			while (node != null) {
+				path[depth++] = node;
+				node = node.right;
+			}
+		}
+		
+		@Override
+		public boolean hasNext() {
+			return depth > 0;
+		}
+		
+		@Override
+		public Interval<E> next() {
+			if (depth == 0) {
+				throw new NoSuchElementException();
+			}
+			final TreeNode<E> node = path[--depth];
+			path[depth] = null;
+			descend(node.left);
+			return node.value;
+		}
+	}
+	
+	private class TreeIterator implements Iterator<Interval<E>> {
+		/**
+		 * path[0..depth) holds the TreeNodes still to be returned, whose left
+		 * subtrees have already been visited. The next node is on top. An
+		 * array suffices, as the path never gets longer than the tree is high.
+		 */
+		private TreeNode<E>[] path;
+		private int depth;
+		private Interval<E> last;
+		/**
+		 * If not null, only the parts of the Intervals within window are
+		 * returned.
+		 */
+		private final Interval<E> window;
+		
+		public TreeIterator() {
+			this(null);
+		}
+		
+		public TreeIterator(final Interval<E> window) {
+			this.path = newPath(height(root));
+			this.depth = 0;
+			this.window = window;
+			if (window == null) {
+				descend(root);
+			} else {
+				TreeNode<E> node = root;
+				while (node != null) {
+					if (isBelow(node.value, window, false)) {
+						node = node.right;
+					} else {
+						push(node);
+						node = node.left;
+					}
+				}
+			}
+		}
+		
+		private void push(TreeNode<E> node) {
+			if (depth == path.length) {
+				path = Arrays.copyOf(path, 2 * depth + 1);
+			}
+			path[depth++] = node;
+		}
+		
+		private TreeNode<E> pop() {
+			final TreeNode<E> node = path[--depth];
+			path[depth] = null;
+			return node;
+		}
+		
+		private void descend(TreeNode<E> node) {
+			while (node != null) {
+				push(node);
+				node = node.left;
+			}
+		}
+		
+		@Override
+		public boolean hasNext() {
+			return depth > 0 && (window == null || !isAbove(path[depth - 1].value, window, false));
+		}
+		
+		@Override
+		public Interval<E> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			final TreeNode<E> node = pop();
+			descend(node.right);
+			last = window == null ? node.value : clip(node.value, window);
+			return last;
+		}
+		
+		/**
+		 * Skips all Intervals lying below e. Only the right subtree of the
+		 * last skipped node is searched, so skipping d Intervals is O(log d).
+		 * 
+		 * @return The next Interval without consuming it, or null if there is
+		 *         none.
+		 */
+		public Interval<E> seek(E e) {
+			TreeNode<E> skipped = null;
+			while (depth > 0 && path[depth - 1].value.isStrictUpperBound(e)) {
+				skipped = pop();
+			}
+			if (skipped != null) {
+				TreeNode<E> node = skipped.right;
+				while (node != null) {
+					if (node.value.isStrictUpperBound(e)) {
+						node = node.right;
+					} else {
+						push(node);
+						node = node.left;
+					}
+				}
+				last = null;
+			}
+			return depth == 0 ? null : path[depth - 1].value;
+		}
+		
+		@Override
+		public void remove() {
+			if (last == null) {
+				throw new IllegalStateException();
+			}
+			iteratorRemove(last);
+			while (depth > 0) {
+				pop();
+			}
+			TreeNode<E> node = root;
+			while (node != null) {
+				if (node.value.compareInfima(last) > 0) {
+					push(node);
+					node = node.left;
+				} else {
+					node = node.right;
+				}
+			}
+			last = null;
+		}
+	}
+	
+	/**
+	 * Splits the in-order sequence of a tree along its subtrees. The pending
+	 * part is a path of entries, the next one on top, each of which is a
+	 * whole subtree, a node followed by its right subtree or a single node.
+	 * Splitting hands all entries but the bottom one to the prefix, or, if
+	 * only one is left, divides it at its node.
+	 */
+	private class TreeSpliterator implements Spliterator<Interval<E>> {
+		private static final byte SUBTREE = 0;
+		private static final byte NODE_AND_RIGHT = 1;
+		private static final byte NODE = 2;
+		
+		private TreeNode<E>[] nodes;
+		private byte[] kinds;
+		private int depth;
+		
+		public TreeSpliterator(final TreeNode<E> node) {
+			nodes = newPath(height(node));
+			kinds = new byte[nodes.length];
+			depth = 0;
+			if (node != null) {
+				push(node, SUBTREE);
+			}
+		}
+		
+		private void push(final TreeNode<E> node, final byte kind) {
+			if (depth == nodes.length) {
+				nodes = Arrays.copyOf(nodes, 2 * depth + 1);
+				kinds = Arrays.copyOf(kinds, 2 * depth + 1);
+			}
+			nodes[depth] = node;
+			kinds[depth++] = kind;
+		}
+		
+		private void descend(TreeNode<E> node) {
+			while (node != null) {
+				push(node, NODE_AND_RIGHT);
+				node = node.left;
+			}
+		}
+		
+		@Override
+		public boolean tryAdvance(final Consumer<? super Interval<E>> action) {
+			while (depth > 0) {
+				final TreeNode<E> node = nodes[--depth];
+				final byte kind = kinds[depth];
+				nodes[depth] = null;
+				if (kind == SUBTREE) {
+					descend(node);
+				} else {
+					if (kind == NODE_AND_RIGHT) {
+						descend(node.right);
+					}
+					action.accept(node.value);
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		@Override
+		public Spliterator<Interval<E>> trySplit() {
+			final TreeSpliterator prefix = new TreeSpliterator(null);
+			if (depth > 1) {
+				for (int k = 1; k < depth; k++) {
+					prefix.push(nodes[k], kinds[k]);
+					nodes[k] = null;
+				}
+				depth = 1;
+				return prefix;
+			} else if (depth == 0 || kinds[0] == NODE) {
+				return null;
+			}
+			final TreeNode<E> node = nodes[0];
+			if (kinds[0] == SUBTREE) {
+				if (node.left == null) {
+					kinds[0] = NODE_AND_RIGHT;
+					return trySplit();
+				}
+				prefix.push(node.left, SUBTREE);
+				kinds[0] = NODE_AND_RIGHT;
+			} else {
+				if (node.right == null) {
+					return null;
+				}
+				if (node.right.left != null) {
+					prefix.push(node.right.left, SUBTREE);
+				}
+				prefix.push(node, NODE);
+				nodes[0] = node.right;
+				kinds[0] = NODE_AND_RIGHT;
+			}
+			return prefix;
+		}
+		
+		/**
+		 * Returns the exact size, as every node counts its subtree.
+		 */
+		@Override
+		public long estimateSize() {
+			long size = 0;
+			for (int k = 0; k < depth; k++) {
+				if (kinds[k] == SUBTREE) {
+					size += count(nodes[k]);
+				} else if (kinds[k] == NODE_AND_RIGHT) {
+					size += count(nodes[k].right) + 1;
+				} else {
+					size++;
+				}
+			}
+			return size;
+		}
+		
+		@Override
+		public int characteristics() {
+			return ORDERED | SORTED | DISTINCT | NONNULL | SIZED | SUBSIZED;
+		}
+		
+		@Override
+		public Comparator<? super Interval<E>> getComparator() {
+			return Interval::compareInfima;
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package util.range;
+
+/**
+ * A node of an AVL tree, that is changed in place, as used by
+ * {@link InlineIntervalSet} and {@link IntervalIndex}. Subclasses keep
+ * further data about their subtree up to date in {@link #update()}. The tree
+ * of {@link AbstractSeparateIntervalSet} balances itself, as it may have to
+ * copy every node it rotates.
+ */
+abstract class AvlNode<N extends AvlNode<N>> {
+	protected N left;
+	protected N right;
+	protected int height = 1;
+	
+	static int height(final AvlNode<?> node) {
+		return node == null ? 0 : node.height;
+	}
+	
+	/**
+	 * Recomputes the height and any other data of this subtree from the
+	 * children.
+	 */
+	protected void update() {
+		height = Math.max(height(left), height(right)) + 1;
+	}
+	
+	/**
+	 * Restores the balance of node, whose subtrees differ in height by at most
+	 * two, and returns the new root of its subtree.
+	 */
+	static <N extends AvlNode<N>> N balance(final N node) {
+		final int b = height(node.left) - height(node.right);
+		if (b > 1) {
+			if (height(node.left.left) < height(node.left.right)) {
+				node.left = rotateLeft(node.left);
+			}
+			return rotateRight(node);
+		} else if (b < -1) {
+			if (height(node.right.right) < height(node.right.left)) {
+				node.right = rotateRight(node.right);
+			}
+			return rotateLeft(node);
+		}
+		node.update();
+		return node;
+	}
+	
+	/**
+	 * Joins two trees and a node lying between them into one balanced tree in
+	 * O(|height(left) - height(right)|) and returns its root. All nodes of
+	 * left must lie below middle, all of right above it.
+	 */
+	static <N extends AvlNode<N>> N join(final N left, final N middle, final N right) {
+		final int hl = height(left);
+		final int hr = height(right);
+		if (hl > hr + 1) {
+			left.right = join(left.right, middle, right);
+			return balance(left);
+		} else if (hr > hl + 1) {
+			right.left = join(left, middle, right.left);
+			return balance(right);
+		}
+		middle.left = left;
+		middle.right = right;
+		middle.update();
+		return middle;
+	}
+	
+	private static <N extends AvlNode<N>> N rotateLeft(final N node) {
+		final N right = node.right;
+		node.right = right.left;
+		node.update();
+		right.left = node;
+		right.update();
+		return right;
+	}
+	
+	private static <N extends AvlNode<N>> N rotateRight(final N node) {
+		final N left = node.left;
+		node.left = left.right;
+		node.update();
+		left.right = node;
+		left.update();
+		return left;
+	}
+}
@@ -0,0 +1,290 @@
+package util.range;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * A thread-safe {@link WritableRange}, which holds its content as an atomic
+ * reference to a {@link PersistentIntervalSet}. Readers never block: every
+ * query runs on the version current at its start. Writers derive a new
+ * version in O(log n) and install it by compare-and-set, retrying if another
+ * writer was faster, so each change, including the coalescing of neighbours,
+ * is atomic and linearizable. Iterators work on the version current at their
+ * creation and never fail due to concurrent changes. Queries, that need to see
+ * one consistent state over several calls, should use {@link #snapshot()}.
+ * Listeners are called by each writer after its version was installed, so
+ * the changes of concurrent writers may arrive in another order than they took
+ * effect, and a listener may already see the content after later changes.
+ */
+public class ConcurrentIntervalSet<E> implements WritableRange<E> {
+	private final AtomicReference<PersistentIntervalSet<E>> current;
+	private final List<IntervalSetListener<E>> listeners = new CopyOnWriteArrayList<IntervalSetListener<E>>();
+	
+	public ConcurrentIntervalSet() {
+		this(null);
+	}
+	
+	public ConcurrentIntervalSet(final Comparator<? super E> comparator) {
+		this.current = new AtomicReference<PersistentIntervalSet<E>>(PersistentIntervalSet.<E> empty(comparator));
+	}
+	
+	/**
+	 * Returns the current content as an immutable version.
+	 */
+	public PersistentIntervalSet<E> snapshot() {
+		return current.get();
+	}
+	
+	/**
+	 * Registers listener to be called with every change of this set.
+	 */
+	public void addListener(final IntervalSetListener<E> listener) {
+		listeners.add(listener);
+	}
+	
+	public void removeListener(final IntervalSetListener<E> listener) {
+		listeners.remove(listener);
+	}
+	
+	/**
+	 * Returns a collector for the changes of one attempt of a single update,
+	 * or null if no listener needs them.
+	 */
+	private AbstractSeparateIntervalSet.Changes<E> changes() {
+		return listeners.isEmpty() ? null : new AbstractSeparateIntervalSet.Changes<E>();
+	}
+	
+	private void fire(final AbstractSeparateIntervalSet.Changes<E> changes, final IntervalSetChange.Kind kind) {
+		if (changes != null) {
+			final IntervalSetChange<E> change = changes.change(kind);
+			if (change != null) {
+				change.fire(listeners);
+			}
+		}
+	}
+	
+	/**
+	 * Notifies the listeners of the difference between two versions, which is
+	 * found in O(n) by iterating both.
+	 */
+	private void fire(final PersistentIntervalSet<E> version, final PersistentIntervalSet<E> next,
+			final IntervalSetChange.Kind kind) {
+		if (version != next && !listeners.isEmpty()) {
+			final IntervalSetChange<E> change = IntervalSetChange.of(kind, version.iterateIntervals(), next
+					.iterateIntervals());
+			if (change != null) {
+				change.fire(listeners);
+			}
+		}
+	}
+	
+	/**
+	 * Returns the structure of the current version. Operations are not
+	 * counted, so coalesces and splits are always zero.
+	 */
+	public IntervalSetStats stats() {
+		return current.get().stats();
+	}
+	
+	public Comparator<? super E> comparator() {
+		return current.get().comparator();
+	}
+	
+	public int size() {
+		return current.get().size();
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return current.get().isEmpty();
+	}
+	
+	@Override
+	public boolean isSet() {
+		return current.get().isSet();
+	}
+	
+	@Override
+	public Set<E> toSet() {
+		return current.get().toSet();
+	}
+	
+	@Override
+	public boolean contains(final E e) {
+		return current.get().contains(e);
+	}
+	
+	@Override
+	public boolean intersects(final Range<E> r) {
+		return current.get().intersects(r);
+	}
+	
+	@Override
+	public boolean intersects(final Interval<E> i) {
+		return current.get().intersects(i);
+	}
+	
+	public Iterator<Interval<E>> iterateIntervals() {
+		return current.get().iterateIntervals();
+	}
+	
+	public Spliterator<Interval<E>> spliterator() {
+		return current.get().spliterator();
+	}
+	
+	public Stream<Interval<E>> stream() {
+		return current.get().stream();
+	}
+	
+	public Stream<Interval<E>> parallelStream() {
+		return current.get().parallelStream();
+	}
+	
+	@Override
+	public boolean hasInfimum() {
+		return current.get().hasInfimum();
+	}
+	
+	@Override
+	public E infimum() {
+		return current.get().infimum();
+	}
+	
+	@Override
+	public boolean isInfimumIncluded() {
+		return current.get().isInfimumIncluded();
+	}
+	
+	@Override
+	public boolean hasSupremum() {
+		return current.get().hasSupremum();
+	}
+	
+	@Override
+	public E supremum() {
+		return current.get().supremum();
+	}
+	
+	@Override
+	public boolean isSupremumIncluded() {
+		return current.get().isSupremumIncluded();
+	}
+	
+	@Override
+	public boolean isLowerBound(final E e) {
+		return current.get().isLowerBound(e);
+	}
+	
+	@Override
+	public boolean isUpperBound(final E e) {
+		return current.get().isUpperBound(e);
+	}
+	
+	@Override
+	public boolean isStrictLowerBound(final E e) {
+		return current.get().isStrictLowerBound(e);
+	}
+	
+	@Override
+	public boolean isStrictUpperBound(final E e) {
+		return current.get().isStrictUpperBound(e);
+	}
+	
+	@Override
+	public SeparateIntervalSet<E> toSeparateIntervalSet() {
+		return current.get().toSeparateIntervalSet();
+	}
+	
+	@Override
+	public String toString() {
+		return current.get().toString();
+	}
+	
+	@Override
+	public void union(final Interval<E> i) {
+		PersistentIntervalSet<E> version;
+		AbstractSeparateIntervalSet.Changes<E> changes;
+		do {
+			version = current.get();
+			changes = changes();
+		} while (!current.compareAndSet(version, version.union(i, changes)));
+		fire(changes, IntervalSetChange.Kind.MERGED);
+	}
+	
+	@Override
+	public void union(final Range<E> r) {
+		PersistentIntervalSet<E> version;
+		PersistentIntervalSet<E> next;
+		do {
+			version = current.get();
+			next = version.union(r);
+		} while (!current.compareAndSet(version, next));
+		fire(version, next, IntervalSetChange.Kind.MERGED);
+	}
+	
+	@Override
+	public void union(final Set<E> s) {
+		union(SeparateIntervalSet.fromPoints(comparator(), s));
+	}
+	
+	@Override
+	public void add(final E e) {
+		PersistentIntervalSet<E> version;
+		AbstractSeparateIntervalSet.Changes<E> changes;
+		do {
+			version = current.get();
+			changes = changes();
+		} while (!current.compareAndSet(version, version.add(e, changes)));
+		fire(changes, IntervalSetChange.Kind.MERGED);
+	}
+	
+	@Override
+	public void remove(final Interval<E> i) {
+		PersistentIntervalSet<E> version;
+		AbstractSeparateIntervalSet.Changes<E> changes;
+		do {
+			version = current.get();
+			changes = changes();
+		} while (!current.compareAndSet(version, version.remove(i, changes)));
+		fire(changes, IntervalSetChange.Kind.SPLIT);
+	}
+	
+	@Override
+	public void remove(final Range<E> r) {
+		PersistentIntervalSet<E> version;
+		PersistentIntervalSet<E> next;
+		do {
+			version = current.get();
+			next = version.remove(r);
+		} while (!current.compareAndSet(version, next));
+		fire(version, next, IntervalSetChange.Kind.SPLIT);
+	}
+	
+	@Override
+	public void remove(final Set<E> s) {
+		remove(SeparateIntervalSet.fromPoints(comparator(), s));
+	}
+	
+	@Override
+	public void remove(final E e) {
+		PersistentIntervalSet<E> version;
+		AbstractSeparateIntervalSet.Changes<E> changes;
+		do {
+			version = current.get();
+			changes = changes();
+		} while (!current.compareAndSet(version, version.remove(e, changes)));
+		fire(changes, IntervalSetChange.Kind.SPLIT);
+	}
+	
+	@Override
+	public void clear() {
+		final PersistentIntervalSet<E> empty = PersistentIntervalSet.<E> empty(comparator());
+		fire(current.getAndSet(empty), empty, IntervalSetChange.Kind.REMOVED);
+	}
+}
@@ -0,0 +1,338 @@
+package util.range;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A set of pairwise separated {@link Interval}s of elements, that have an
+ * order preserving encoding as longs. Every bound is encoded once when it is
+ * added and the set is kept as a {@link LongIntervalSet}, so lookups compare
+ * primitives instead of calling a {@link Comparator} or compareTo. The
+ * encoding must be strictly monotonic: e1 < e2 in the order of the set if and
+ * only if encode(e1) < encode(e2). Elements are decoded again only when they
+ * are returned.
+ */
+public class EncodedIntervalSet<E> implements WritableRange<E> {
+	private static final long NANOS_PER_SECOND = 1000000000L;
+	
+	private final Comparator<? super E> comparator;
+	private final ToLongFunction<? super E> encoder;
+	private final LongFunction<? extends E> decoder;
+	private final LongIntervalSet keys;
+	
+	/**
+	 * Creates a set in natural order.
+	 */
+	public EncodedIntervalSet(final ToLongFunction<? super E> encoder, final LongFunction<? extends E> decoder) {
+		this(null, encoder, decoder);
+	}
+	
+	public EncodedIntervalSet(final Comparator<? super E> comparator, final ToLongFunction<? super E> encoder,
+			final LongFunction<? extends E> decoder) {
+		this.comparator = comparator;
+		this.encoder = encoder;
+		this.decoder = decoder;
+		this.keys = new LongIntervalSet();
+	}
+	
+	/**
+	 * Creates a set of the constants of an enum, encoded by their ordinals.
+	 */
+	public static <T extends Enum<T>> EncodedIntervalSet<T> ofEnum(final Class<T> type) {
+		final T[] constants = type.getEnumConstants();
+		return new EncodedIntervalSet<T>(Enum::ordinal, k -> constants[(int) k]);
+	}
+	
+	/**
+	 * Creates a set of dates, encoded by their epoch days.
+	 */
+	public static EncodedIntervalSet<LocalDate> ofLocalDates() {
+		return new EncodedIntervalSet<LocalDate>(LocalDate::toEpochDay, LocalDate::ofEpochDay);
+	}
+	
+	/**
+	 * Creates a set of instants, encoded by their epoch nanoseconds. Only
+	 * nanoseconds keep distinct instants distinct, so the set holds instants
+	 * from 1677-09-21T00:12:43.145224192Z to 2262-04-11T23:47:16.854775807Z,
+	 * the range of a long.
+	 * 
+	 * @throws ArithmeticException
+	 *             If an instant outside this range is added or looked up.
+	 */
+	public static EncodedIntervalSet<Instant> ofInstants() {
+		return new EncodedIntervalSet<Instant>(EncodedIntervalSet::toEpochNano, k -> Instant.ofEpochSecond(Math
+				.floorDiv(k, NANOS_PER_SECOND), Math.floorMod(k, NANOS_PER_SECOND)));
+	}
+	
+	/**
+	 * Returns the nanoseconds from the epoch to i. Negative seconds are
+	 * shifted by one before multiplying, so the lowest second of the range
+	 * does not overflow.
+	 */
+	private static long toEpochNano(final Instant i) {
+		final long seconds = i.getEpochSecond();
+		return seconds < 0 ? Math.addExact(Math.multiplyExact(seconds + 1, NANOS_PER_SECOND), i.getNano()
+				- NANOS_PER_SECOND) : Math.addExact(Math.multiplyExact(seconds, NANOS_PER_SECOND), i.getNano());
+	}
+	
+	public Comparator<? super E> comparator() {
+		return comparator;
+	}
+	
+	/**
+	 * Returns the encoded set. Changes to it are reflected by this set.
+	 */
+	public LongIntervalSet keys() {
+		return keys;
+	}
+	
+	public int size() {
+		return keys.size();
+	}
+	
+	private void checkComparator(final Interval<E> i) {
+		if (i.comparator() != comparator) {
+			throw new IncompatibleComparatorException();
+		}
+	}
+	
+	private Interval<E> decode(final Interval<Long> i) {
+		return new Interval<E>(comparator, i.hasInfimum() ? decoder.apply(i.infimum()) : null, i.hasSupremum()
+				? decoder.apply(i.supremum())
+				: null, i.config);
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return keys.isEmpty();
+	}
+	
+	@Override
+	public boolean isSet() {
+		return keys.isSet();
+	}
+	
+	@Override
+	public Set<E> toSet() {
+		final Set<E> set = new HashSet<E>();
+		for (final Long key : keys.toSet()) {
+			set.add(decoder.apply(key));
+		}
+		return set;
+	}
+	
+	@Override
+	public boolean contains(final E e) {
+		return keys.contains(encoder.applyAsLong(e));
+	}
+	
+	@Override
+	public boolean intersects(final Interval<E> i) {
+		checkComparator(i);
+		return !i.isEmpty()
+				&& keys.intersects(i.hasInfimum() ? encoder.applyAsLong(i.infimum()) : Long.MIN_VALUE, i
+						.hasSupremum() ? encoder.applyAsLong(i.supremum()) : Long.MAX_VALUE, i.config);
+	}
+	
+	@Override
+	public boolean intersects(final Range<E> r) {
+		final Iterator<Interval<E>> it = r.toSeparateIntervalSet().iterateIntervals();
+		while (it.hasNext()) {
+			if (intersects(it.next())) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	public Iterator<Interval<E>> iterateIntervals() {
+		final Iterator<Interval<Long>> it = keys.iterateIntervals();
+		return new Iterator<Interval<E>>() {
+			@Override
+			public boolean hasNext() {
+				return it.hasNext();
+			}
+			
+			@Override
+			public Interval<E> next() {
+				if (!it.hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return decode(it.next());
+			}
+		};
+	}
+	
+	/**
+	 * Returns a sized {@link Spliterator} over the Intervals in ascending
+	 * order, which splits as the spliterator of the keys does.
+	 */
+	public Spliterator<Interval<E>> spliterator() {
+		return new DecodingSpliterator(keys.spliterator());
+	}
+	
+	public Stream<Interval<E>> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+	
+	public Stream<Interval<E>> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+	
+	@Override
+	public boolean hasInfimum() {
+		return keys.hasInfimum();
+	}
+	
+	@Override
+	public E infimum() {
+		return decoder.apply(keys.infimum());
+	}
+	
+	@Override
+	public boolean isInfimumIncluded() {
+		return keys.isInfimumIncluded();
+	}
+	
+	@Override
+	public boolean hasSupremum() {
+		return keys.hasSupremum();
+	}
+	
+	@Override
+	public E supremum() {
+		return decoder.apply(keys.supremum());
+	}
+	
+	@Override
+	public boolean isSupremumIncluded() {
+		return keys.isSupremumIncluded();
+	}
+	
+	@Override
+	public boolean isLowerBound(final E e) {
+		return keys.isLowerBound(encoder.applyAsLong(e));
+	}
+	
+	@Override
+	public boolean isUpperBound(final E e) {
+		return keys.isUpperBound(encoder.applyAsLong(e));
+	}
+	
+	@Override
+	public boolean isStrictLowerBound(final E e) {
+		return keys.isStrictLowerBound(encoder.applyAsLong(e));
+	}
+	
+	@Override
+	public boolean isStrictUpperBound(final E e) {
+		return keys.isStrictUpperBound(encoder.applyAsLong(e));
+	}
+	
+	@Override
+	public SeparateIntervalSet<E> toSeparateIntervalSet() {
+		final List<Interval<E>> intervals = new ArrayList<Interval<E>>(keys.size());
+		final Iterator<Interval<E>> it = iterateIntervals();
+		while (it.hasNext()) {
+			intervals.add(it.next());
+		}
+		return SeparateIntervalSet.of(comparator, intervals);
+	}
+	
+	@Override
+	public String toString() {
+		if (keys.isEmpty()) {
+			return "O";
+		}
+		final Iterator<Interval<E>> it = iterateIntervals();
+		final StringBuilder sb = new StringBuilder(it.next().toString());
+		while (it.hasNext()) {
+			sb.append("U").append(it.next().toString());
+		}
+		return sb.toString();
+	}
+	
+	@Override
+	public void union(final Interval<E> i) {
+		checkComparator(i);
+		if (!i.isEmpty()) {
+			keys.union(i.hasInfimum() ? encoder.applyAsLong(i.infimum()) : Long.MIN_VALUE, i.hasSupremum() ? encoder
+					.applyAsLong(i.supremum()) : Long.MAX_VALUE, i.config);
+		}
+	}
+	
+	@Override
+	public void add(final E e) {
+		keys.add(encoder.applyAsLong(e));
+	}
+	
+	@Override
+	public void remove(final Interval<E> i) {
+		checkComparator(i);
+		if (!i.isEmpty()) {
+			keys.remove(i.hasInfimum() ? encoder.applyAsLong(i.infimum()) : Long.MIN_VALUE, i.hasSupremum() ? encoder
+					.applyAsLong(i.supremum()) : Long.MAX_VALUE, i.config);
+		}
+	}
+	
+	@Override
+	public void remove(final E e) {
+		keys.remove(encoder.applyAsLong(e));
+	}
+	
+	@Override
+	public void clear() {
+		keys.clear();
+	}
+	
+	/**
+	 * Decodes the Intervals of a spliterator over the keys. The codec
+	 * preserves order, so the keys are sorted like the decoded Intervals.
+	 */
+	private class DecodingSpliterator implements Spliterator<Interval<E>> {
+		private final Spliterator<Interval<Long>> keys;
+		
+		public DecodingSpliterator(final Spliterator<Interval<Long>> keys) {
+			this.keys = keys;
+		}
+		
+		@Override
+		public boolean tryAdvance(final Consumer<? super Interval<E>> action) {
+			return keys.tryAdvance(i -> action.accept(decode(i)));
+		}
+		
+		@Override
+		public Spliterator<Interval<E>> trySplit() {
+			final Spliterator<Interval<Long>> prefix = keys.trySplit();
+			return prefix == null ? null : new DecodingSpliterator(prefix);
+		}
+		
+		@Override
+		public long estimateSize() {
+			return keys.estimateSize();
+		}
+		
+		@Override
+		public int characteristics() {
+			return keys.characteristics();
+		}
+		
+		@Override
+		public Comparator<? super Interval<E>> getComparator() {
+			return Interval::compareInfima;
+		}
+	}
+}
@@ -0,0 +1,426 @@
+package util.range;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An immutable set of pairwise separated Intervals, created by
+ * {@link AbstractSeparateIntervalSet#freeze()}. The bounds and configurations
+ * are stored in flat arrays in Eytzinger order: the children of slot k are the
+ * slots 2k and 2k + 1, slot 1 is the root. A search touches one slot per level
+ * and the first levels share a few cache lines, so lookups need neither
+ * {@link Interval} objects nor pointer chasing. The extrema are found in O(1).
+ */
+public class FrozenIntervalSet<E> implements Range<E> {
+	private final Comparator<? super E> comparator;
+	private final Object[] infima;
+	private final Object[] suprema;
+	private final byte[] configs;
+	private final int size;
+	private final int first;
+	private final int last;
+	
+	/**
+	 * @param intervals
+	 *            Sorted, pairwise separated Intervals using comparator.
+	 */
+	FrozenIntervalSet(final Comparator<? super E> comparator, final List<Interval<E>> intervals) {
+		this.comparator = comparator;
+		this.size = intervals.size();
+		this.infima = new Object[size + 1];
+		this.suprema = new Object[size + 1];
+		this.configs = new byte[size + 1];
+		fill(intervals, 1, 0);
+		int k = 1;
+		while (2 * k <= size) {
+			k = 2 * k;
+		}
+		this.first = size == 0 ? 0 : k;
+		k = 1;
+		while (2 * k + 1 <= size) {
+			k = 2 * k + 1;
+		}
+		this.last = size == 0 ? 0 : k;
+	}
+	
+	public Comparator<? super E> comparator() {
+		return comparator;
+	}
+	
+	/**
+	 * Fills the subtree of slot k with the Intervals starting at index next
+	 * and returns the index of the first Interval not used.
+	 */
+	private int fill(final List<Interval<E>> intervals, final int k, int next) {
+		if (k <= size) {
+			next = fill(intervals, 2 * k, next);
+			final Interval<E> i = intervals.get(next++);
+			infima[k] = i.hasInfimum() ? i.infimum() : null;
+			suprema[k] = i.hasSupremum() ? i.supremum() : null;
+			configs[k] = (byte) i.config;
+			next = fill(intervals, 2 * k + 1, next);
+		}
+		return next;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private int compare(final Object e1, final E e2) {
+		return comparator == null ? ((Comparable<? super E>) e1).compareTo(e2) : comparator.compare((E) e1, e2);
+	}
+	
+	/**
+	 * Turns the slot reached by a descent, that went right whenever the slot
+	 * lay below the searched position, into the first slot not lying below
+	 * it, or 0 if there is none.
+	 */
+	private static int found(final int k) {
+		return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+	}
+	
+	/**
+	 * Whether the Interval in slot k lies below e.
+	 */
+	private boolean below(final int k, final E e) {
+		if ((configs[k] & Interval.SUPREMUM_EXISTS) == 0) {
+			return false;
+		}
+		final int c = compare(suprema[k], e);
+		return c < 0 || (c == 0 && (configs[k] & Interval.SUPREMUM_INCLUDED) == 0);
+	}
+	
+	/**
+	 * Whether the Interval in slot k lies below i without sharing an element.
+	 */
+	private boolean below(final int k, final Interval<E> i) {
+		if ((configs[k] & Interval.SUPREMUM_EXISTS) == 0 || !i.hasInfimum()) {
+			return false;
+		}
+		final int c = compare(suprema[k], i.infimum());
+		return c < 0 || (c == 0 && ((configs[k] & Interval.SUPREMUM_INCLUDED) == 0 || !i.isInfimumIncluded()));
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	@Override
+	public boolean isSet() {
+		for (int k = 1; k <= size; k++) {
+			if (configs[k] != (Interval.INFIMUM_EX_INCLUDED | Interval.SUPREMUM_EX_INCLUDED)
+					|| compare(infima[k], cast(suprema[k])) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public Set<E> toSet() {
+		if (!this.isSet()) {
+			throw new UnsupportedOperationException("Is no Set.");
+		}
+		final Set<E> set = new HashSet<E>();
+		for (int k = 1; k <= size; k++) {
+			set.add(cast(infima[k]));
+		}
+		return set;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private E cast(final Object e) {
+		return (E) e;
+	}
+	
+	@Override
+	public boolean contains(final E e) {
+		int k = 1;
+		while (k <= size) {
+			k = 2 * k + (below(k, e) ? 1 : 0);
+		}
+		k = found(k);
+		if (k == 0) {
+			return false;
+		} else if ((configs[k] & Interval.INFIMUM_EXISTS) == 0) {
+			return true;
+		}
+		final int c = compare(infima[k], e);
+		return c < 0 || (c == 0 && (configs[k] & Interval.INFIMUM_INCLUDED) != 0);
+	}
+	
+	@Override
+	public boolean intersects(final Interval<E> i) {
+		if (i.comparator() != comparator) {
+			throw new IncompatibleComparatorException();
+		} else if (i.isEmpty()) {
+			return false;
+		}
+		int k = 1;
+		while (k <= size) {
+			k = 2 * k + (below(k, i) ? 1 : 0);
+		}
+		k = found(k);
+		if (k == 0) {
+			return false;
+		} else if ((configs[k] & Interval.INFIMUM_EXISTS) == 0 || !i.hasSupremum()) {
+			return true;
+		}
+		final int c = compare(infima[k], i.supremum());
+		return c < 0 || (c == 0 && (configs[k] & Interval.INFIMUM_INCLUDED) != 0 && i.isSupremumIncluded());
+	}
+	
+	@Override
+	public boolean intersects(final Range<E> r) {
+		final Iterator<Interval<E>> it = r.toSeparateIntervalSet().iterateIntervals();
+		while (it.hasNext()) {
+			if (intersects(it.next())) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private Interval<E> interval(final int k) {
+		return new Interval<E>(comparator, cast(infima[k]), cast(suprema[k]), configs[k]);
+	}
+	
+	public Iterator<Interval<E>> iterateIntervals() {
+		return new Iterator<Interval<E>>() {
+			private int k = first;
+			
+			@Override
+			public boolean hasNext() {
+				return k != 0;
+			}
+			
+			@Override
+			public Interval<E> next() {
+				if (k == 0) {
+					throw new NoSuchElementException();
+				}
+				final Interval<E> result = interval(k);
+				k = successor(k);
+				return result;
+			}
+		};
+	}
+	
+	/**
+	 * Returns the slot following slot k in ascending order, or 0 if there is
+	 * none.
+	 */
+	private int successor(int k) {
+		if (2 * k + 1 > size) {
+			return found(k);
+		}
+		k = 2 * k + 1;
+		while (2 * k <= size) {
+			k = 2 * k;
+		}
+		return k;
+	}
+	
+	/**
+	 * Returns the number of slots in the subtree of slot k.
+	 */
+	private int count(final int k) {
+		int count = 0;
+		for (long from = k, to = k; from <= size; from = 2 * from, to = 2 * to + 1) {
+			count += (int) (Math.min(to, size) - from + 1);
+		}
+		return count;
+	}
+	
+	/**
+	 * Returns the slot of the Interval with the given index in ascending
+	 * order in O(log^2 n).
+	 */
+	private int slot(int index) {
+		int k = 1;
+		while (true) {
+			final int left = count(2 * k);
+			if (index < left) {
+				k = 2 * k;
+			} else if (index == left) {
+				return k;
+			} else {
+				index -= left + 1;
+				k = 2 * k + 1;
+			}
+		}
+	}
+	
+	/**
+	 * Returns a sized {@link Spliterator} over the Intervals in ascending
+	 * order, which splits the index range in halves.
+	 */
+	public Spliterator<Interval<E>> spliterator() {
+		return new IndexSpliterator(0, size);
+	}
+	
+	public Stream<Interval<E>> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+	
+	public Stream<Interval<E>> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+	
+	@Override
+	public boolean hasInfimum() {
+		return size > 0 && (configs[first] & Interval.INFIMUM_EXISTS) != 0;
+	}
+	
+	@Override
+	public E infimum() {
+		if (this.hasInfimum()) {
+			return cast(infima[first]);
+		} else {
+			throw new NoSuchExtremumException("Infimum");
+		}
+	}
+	
+	@Override
+	public boolean isInfimumIncluded() {
+		if (this.hasInfimum()) {
+			return (configs[first] & Interval.INFIMUM_INCLUDED) != 0;
+		} else {
+			throw new NoSuchExtremumException("Infimum");
+		}
+	}
+	
+	@Override
+	public boolean hasSupremum() {
+		return size > 0 && (configs[last] & Interval.SUPREMUM_EXISTS) != 0;
+	}
+	
+	@Override
+	public E supremum() {
+		if (this.hasSupremum()) {
+			return cast(suprema[last]);
+		} else {
+			throw new NoSuchExtremumException("Supremum");
+		}
+	}
+	
+	@Override
+	public boolean isSupremumIncluded() {
+		if (this.hasSupremum()) {
+			return (configs[last] & Interval.SUPREMUM_INCLUDED) != 0;
+		} else {
+			throw new NoSuchExtremumException("Supremum");
+		}
+	}
+	
+	@Override
+	public boolean isLowerBound(final E e) {
+		return this.hasInfimum() ? compare(infima[first], e) >= 0 : this.isEmpty();
+	}
+	
+	@Override
+	public boolean isUpperBound(final E e) {
+		return this.hasSupremum() ? compare(suprema[last], e) <= 0 : this.isEmpty();
+	}
+	
+	@Override
+	public boolean isStrictLowerBound(final E e) {
+		if (this.hasInfimum()) {
+			return compare(infima[first], e) >= (this.isInfimumIncluded() ? 1 : 0);
+		} else {
+			return this.isEmpty();
+		}
+	}
+	
+	@Override
+	public boolean isStrictUpperBound(final E e) {
+		if (this.hasSupremum()) {
+			return compare(suprema[last], e) <= (this.isSupremumIncluded() ? -1 : 0);
+		} else {
+			return this.isEmpty();
+		}
+	}
+	
+	@Override
+	public SeparateIntervalSet<E> toSeparateIntervalSet() {
+		final List<Interval<E>> intervals = new ArrayList<Interval<E>>(size);
+		final Iterator<Interval<E>> it = iterateIntervals();
+		while (it.hasNext()) {
+			intervals.add(it.next());
+		}
+		return SeparateIntervalSet.of(comparator, intervals);
+	}
+	
+	@Override
+	public String toString() {
+		return toSeparateIntervalSet().toString();
+	}
+	
+	/**
+	 * Covers the Intervals with indices from next to end. The slot of next is
+	 * only looked up, when the first Interval is taken, so splitting is O(1).
+	 */
+	private class IndexSpliterator implements Spliterator<Interval<E>> {
+		private int next;
+		private final int end;
+		/**
+		 * The slot of next, or 0 if it has not been looked up yet.
+		 */
+		private int k;
+		
+		public IndexSpliterator(final int next, final int end) {
+			this.next = next;
+			this.end = end;
+		}
+		
+		@Override
+		public boolean tryAdvance(final Consumer<? super Interval<E>> action) {
+			if (next >= end) {
+				return false;
+			}
+			if (k == 0) {
+				k = slot(next);
+			}
+			final Interval<E> i = interval(k);
+			k = ++next < end ? successor(k) : 0;
+			action.accept(i);
+			return true;
+		}
+		
+		@Override
+		public Spliterator<Interval<E>> trySplit() {
+			final int middle = (next + end) >>> 1;
+			if (middle <= next) {
+				return null;
+			}
+			final IndexSpliterator prefix = new IndexSpliterator(next, middle);
+			prefix.k = k;
+			next = middle;
+			k = 0;
+			return prefix;
+		}
+		
+		@Override
+		public long estimateSize() {
+			return end - next;
+		}
+		
+		@Override
+		public int characteristics() {
+			return ORDERED | SORTED | DISTINCT | NONNULL | SIZED | SUBSIZED;
+		}
+		
+		@Override
+		public Comparator<? super Interval<E>> getComparator() {
+			return Interval::compareInfima;
+		}
+	}
+}
@@ -0,0 +1,709 @@
+package util.range;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A set of pairwise separated Intervals, held in an AVL tree whose nodes
+ * store the bounds and flags of their Interval inline. Adding and removing
+ * change the bounds of the affected nodes in place, so neither creates
+ * {@link Interval} objects: adding an element or an Interval connected to one
+ * already in the set allocates nothing and a new node is only allocated for
+ * an Interval not connected to any other or for the upper part of an Interval
+ * split by a removal. Intervals are only created when they are requested,
+ * e.g. by {@link #iterateIntervals()}. Use the overloads taking bounds and
+ * {@link Interval} flags to avoid creating an Interval for the argument, too.
+ */
+public class InlineIntervalSet<E> implements WritableRange<E> {
+	private final Comparator<? super E> comparator;
+	private Node<E> root;
+	private int size;
+	/**
+	 * The lower part left by {@link #split(Node, Node)}.
+	 */
+	private Node<E> below;
+	
+	public InlineIntervalSet() {
+		this(null);
+	}
+	
+	public InlineIntervalSet(final Comparator<? super E> comparator) {
+		this.comparator = comparator;
+		this.root = null;
+		this.size = 0;
+	}
+	
+	/*
+	 * A bound is compared as a cut (value, side), as in LongIntervalSet. The
+	 * side is -1 for an included infimum or excluded supremum, which lie just
+	 * below value, and 1 for an excluded infimum or included supremum, which
+	 * lie just above it. A missing infimum has side -2, a missing supremum
+	 * side 2, both without a value. An element is the cut (e, 0).
+	 */
+	
+	@SuppressWarnings("unchecked")
+	private int compare(final E v1, final int s1, final E v2, final int s2) {
+		if (s1 == -2 || s1 == 2 || s2 == -2 || s2 == 2) {
+			return Integer.compare(s1 == -2 || s1 == 2 ? s1 : 0, s2 == -2 || s2 == 2 ? s2 : 0);
+		}
+		final int c = comparator == null ? ((Comparable<? super E>) v1).compareTo(v2) : comparator.compare(v1, v2);
+		return c != 0 ? c : s1 - s2;
+	}
+	
+	private void checkComparator(final Interval<E> i) {
+		if (i.comparator() != comparator) {
+			throw new IncompatibleComparatorException();
+		}
+	}
+	
+	private int compareLower(final Node<E> node, final E v, final int s) {
+		return compare(node.lower, LongIntervalSet.lowerSide(node.config), v, s);
+	}
+	
+	private int compareUpper(final Node<E> node, final E v, final int s) {
+		return compare(node.upper, LongIntervalSet.upperSide(node.config), v, s);
+	}
+	
+	public Comparator<? super E> comparator() {
+		return comparator;
+	}
+	
+	/**
+	 * Returns the number of Intervals.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return root == null;
+	}
+	
+	@Override
+	public boolean isSet() {
+		final Iterator<Interval<E>> it = iterateIntervals();
+		while (it.hasNext()) {
+			if (!it.next().isSet()) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public Set<E> toSet() {
+		final Set<E> set = new HashSet<E>();
+		final Iterator<Interval<E>> it = iterateIntervals();
+		while (it.hasNext()) {
+			set.addAll(it.next().toSet());
+		}
+		return set;
+	}
+	
+	@Override
+	public boolean contains(final E e) {
+		Node<E> node = root;
+		while (node != null) {
+			if (compareLower(node, e, 0) > 0) {
+				node = node.left;
+			} else if (compareUpper(node, e, 0) < 0) {
+				node = node.right;
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	@Override
+	public boolean intersects(final Interval<E> i) {
+		checkComparator(i);
+		return !i.isEmpty() && intersects(i.hasInfimum() ? i.infimum() : null, i.hasSupremum() ? i.supremum() : null,
+				i.config);
+	}
+	
+	/**
+	 * Whether the Interval described by infimum, supremum and the
+	 * {@link Interval} flags in config shares an element with this set.
+	 * Missing bounds are ignored.
+	 */
+	public boolean intersects(final E infimum, final E supremum, final int config) {
+		LongIntervalSet.checkConfig(config);
+		if (config == Interval.EMPTY) {
+			return false;
+		}
+		final int ls = LongIntervalSet.lowerSide(config);
+		final int us = LongIntervalSet.upperSide(config);
+		if (compare(infimum, ls, supremum, us) >= 0) {
+			return false;
+		}
+		Node<E> node = root;
+		while (node != null) {
+			if (compareLower(node, supremum, us) >= 0) {
+				node = node.left;
+			} else if (compareUpper(node, infimum, ls) <= 0) {
+				node = node.right;
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	@Override
+	public boolean intersects(final Range<E> r) {
+		final Iterator<Interval<E>> it = r.toSeparateIntervalSet().iterateIntervals();
+		while (it.hasNext()) {
+			if (intersects(it.next())) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	public Iterator<Interval<E>> iterateIntervals() {
+		final ArrayDeque<Node<E>> path = new ArrayDeque<Node<E>>();
+		for (Node<E> node = root; node != null; node = node.left) {
+			path.push(node);
+		}
+		return new Iterator<Interval<E>>() {
+			@Override
+			public boolean hasNext() {
+				return !path.isEmpty();
+			}
+			
+			@Override
+			public Interval<E> next() {
+				if (path.isEmpty()) {
+					throw new NoSuchElementException();
+				}
+				final Node<E> node = path.pop();
+				for (Node<E> n = node.right; n != null; n = n.left) {
+					path.push(n);
+				}
+				return new Interval<E>(comparator, node.lower, node.upper, node.config);
+			}
+		};
+	}
+	
+	/**
+	 * Returns a sized {@link Spliterator} over the Intervals in ascending
+	 * order, which splits along subtrees. Nodes do not count their subtrees,
+	 * so the parts only estimate their sizes.
+	 */
+	public Spliterator<Interval<E>> spliterator() {
+		return new TreeSpliterator(root, size, true);
+	}
+	
+	public Stream<Interval<E>> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+	
+	public Stream<Interval<E>> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+	
+	private Node<E> first() {
+		Node<E> node = root;
+		while (node.left != null) {
+			node = node.left;
+		}
+		return node;
+	}
+	
+	private Node<E> last() {
+		Node<E> node = root;
+		while (node.right != null) {
+			node = node.right;
+		}
+		return node;
+	}
+	
+	@Override
+	public boolean hasInfimum() {
+		return root != null && (first().config & Interval.INFIMUM_EXISTS) != 0;
+	}
+	
+	@Override
+	public E infimum() {
+		if (this.hasInfimum()) {
+			return first().lower;
+		} else {
+			throw new NoSuchExtremumException("Infimum");
+		}
+	}
+	
+	@Override
+	public boolean isInfimumIncluded() {
+		if (this.hasInfimum()) {
+			return (first().config & Interval.INFIMUM_INCLUDED) != 0;
+		} else {
+			throw new NoSuchExtremumException("Infimum");
+		}
+	}
+	
+	@Override
+	public boolean hasSupremum() {
+		return root != null && (last().config & Interval.SUPREMUM_EXISTS) != 0;
+	}
+	
+	@Override
+	public E supremum() {
+		if (this.hasSupremum()) {
+			return last().upper;
+		} else {
+			throw new NoSuchExtremumException("Supremum");
+		}
+	}
+	
+	@Override
+	public boolean isSupremumIncluded() {
+		if (this.hasSupremum()) {
+			return (last().config & Interval.SUPREMUM_INCLUDED) != 0;
+		} else {
+			throw new NoSuchExtremumException("Supremum");
+		}
+	}
+	
+	@Override
+	public boolean isLowerBound(final E e) {
+		return root == null || compareLower(first(), e, -1) >= 0;
+	}
+	
+	@Override
+	public boolean isUpperBound(final E e) {
+		return root == null || compareUpper(last(), e, 1) <= 0;
+	}
+	
+	@Override
+	public boolean isStrictLowerBound(final E e) {
+		return root == null || compareLower(first(), e, 0) > 0;
+	}
+	
+	@Override
+	public boolean isStrictUpperBound(final E e) {
+		return root == null || compareUpper(last(), e, 0) < 0;
+	}
+	
+	@Override
+	public SeparateIntervalSet<E> toSeparateIntervalSet() {
+		final List<Interval<E>> intervals = new ArrayList<Interval<E>>(size);
+		final Iterator<Interval<E>> it = iterateIntervals();
+		while (it.hasNext()) {
+			intervals.add(it.next());
+		}
+		return SeparateIntervalSet.of(comparator, intervals);
+	}
+	
+	@Override
+	public String toString() {
+		if (root == null) {
+			return "O";
+		}
+		final Iterator<Interval<E>> it = iterateIntervals();
+		final StringBuilder sb = new StringBuilder(it.next().toString());
+		while (it.hasNext()) {
+			sb.append("U").append(it.next().toString());
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Returns the lowest node sharing an element with, or if touching also
+	 * only touching, the Interval between the cuts (lv, ls) and (uv, us).
+	 */
+	private Node<E> lowest(final E lv, final int ls, final E uv, final int us, final boolean touching) {
+		Node<E> found = null;
+		Node<E> node = root;
+		while (node != null) {
+			final int c = compareUpper(node, lv, ls);
+			if (touching ? c < 0 : c <= 0) {
+				node = node.right;
+			} else {
+				final int d = compareLower(node, uv, us);
+				if (touching ? d <= 0 : d < 0) {
+					found = node;
+				}
+				node = node.left;
+			}
+		}
+		return found;
+	}
+	
+	private Node<E> highest(final E lv, final int ls, final E uv, final int us, final boolean touching) {
+		Node<E> found = null;
+		Node<E> node = root;
+		while (node != null) {
+			final int c = compareLower(node, uv, us);
+			if (touching ? c > 0 : c >= 0) {
+				node = node.left;
+			} else {
+				final int d = compareUpper(node, lv, ls);
+				if (touching ? d >= 0 : d > 0) {
+					found = node;
+				}
+				node = node.right;
+			}
+		}
+		return found;
+	}
+	
+	/**
+	 * Removes all nodes between lowest and highest by splitting the tree at
+	 * both and joining the outer parts again in O(log n). Only counting the
+	 * removed nodes visits them.
+	 */
+	private void removeBetween(final Node<E> lowest, final Node<E> highest) {
+		final Node<E> above = split(root, lowest);
+		final Node<E> lower = below;
+		final Node<E> upper = split(above, highest);
+		size -= count(below);
+		below = null;
+		root = AvlNode.join(lower, lowest, AvlNode.join(null, highest, upper));
+	}
+	
+	/**
+	 * Splits the subtree of node at pivot, which must lie in it, and detaches
+	 * pivot. Returns the nodes above pivot and leaves those below it in
+	 * below.
+	 */
+	private Node<E> split(final Node<E> node, final Node<E> pivot) {
+		if (node == pivot) {
+			below = node.left;
+			return node.right;
+		} else if (compareLower(pivot, node.lower, LongIntervalSet.lowerSide(node.config)) < 0) {
+			final Node<E> right = node.right;
+			return AvlNode.join(split(node.left, pivot), node, right);
+		}
+		final Node<E> left = node.left;
+		final Node<E> above = split(node.right, pivot);
+		below = AvlNode.join(left, node, below);
+		return above;
+	}
+	
+	private static int count(final Node<?> node) {
+		return node == null ? 0 : count(node.left) + 1 + count(node.right);
+	}
+	
+	/**
+	 * Adds the Interval described by infimum, supremum and the
+	 * {@link Interval} flags in config. Missing bounds are ignored.
+	 */
+	public void union(final E infimum, final E supremum, final int config) {
+		LongIntervalSet.checkConfig(config);
+		if (config == Interval.EMPTY) {
+			return;
+		}
+		final int ls = LongIntervalSet.lowerSide(config);
+		final int us = LongIntervalSet.upperSide(config);
+		if (compare(infimum, ls, supremum, us) >= 0) {
+			return;
+		}
+		final Node<E> lowest = lowest(infimum, ls, supremum, us, true);
+		if (lowest == null) {
+			root = insert(root, new Node<E>(ls == -2 ? null : infimum, us == 2 ? null : supremum, config));
+			size++;
+			return;
+		}
+		final Node<E> highest = highest(infimum, ls, supremum, us, true);
+		if (highest != lowest) {
+			removeBetween(lowest, highest);
+			root = delete(root, highest);
+			size--;
+			lowest.setUpper(highest.upper, LongIntervalSet.upperSide(highest.config));
+		}
+		if (compareLower(lowest, infimum, ls) > 0) {
+			lowest.setLower(infimum, ls);
+		}
+		if (compareUpper(lowest, supremum, us) < 0) {
+			lowest.setUpper(supremum, us);
+		}
+	}
+	
+	/**
+	 * Removes the Interval described by infimum, supremum and the
+	 * {@link Interval} flags in config. Missing bounds are ignored.
+	 */
+	public void remove(final E infimum, final E supremum, final int config) {
+		LongIntervalSet.checkConfig(config);
+		if (config == Interval.EMPTY) {
+			return;
+		}
+		final int ls = LongIntervalSet.lowerSide(config);
+		final int us = LongIntervalSet.upperSide(config);
+		if (compare(infimum, ls, supremum, us) >= 0) {
+			return;
+		}
+		final Node<E> lowest = lowest(infimum, ls, supremum, us, false);
+		if (lowest == null) {
+			return;
+		}
+		final Node<E> highest = highest(infimum, ls, supremum, us, false);
+		final boolean keepLower = compareLower(lowest, infimum, ls) < 0;
+		final boolean keepUpper = compareUpper(highest, supremum, us) > 0;
+		if (highest == lowest) {
+			if (keepLower && keepUpper) {
+				final Node<E> upper = new Node<E>(supremum, lowest.upper, LongIntervalSet.lowerConfig(us)
+						| (lowest.config & Interval.SUPREMUM_EX_INCLUDED));
+				lowest.setUpper(infimum, ls);
+				root = insert(root, upper);
+				size++;
+			} else if (keepLower) {
+				lowest.setUpper(infimum, ls);
+			} else if (keepUpper) {
+				lowest.setLower(supremum, us);
+			} else {
+				root = delete(root, lowest);
+				size--;
+			}
+			return;
+		}
+		removeBetween(lowest, highest);
+		if (keepUpper) {
+			highest.setLower(supremum, us);
+		} else {
+			root = delete(root, highest);
+			size--;
+		}
+		if (keepLower) {
+			lowest.setUpper(infimum, ls);
+		} else {
+			root = delete(root, lowest);
+			size--;
+		}
+	}
+	
+	@Override
+	public void union(final Interval<E> i) {
+		checkComparator(i);
+		if (!i.isEmpty()) {
+			union(i.hasInfimum() ? i.infimum() : null, i.hasSupremum() ? i.supremum() : null, i.config);
+		}
+	}
+	
+	@Override
+	public void add(final E e) {
+		union(e, e, Interval.INFIMUM_EX_INCLUDED | Interval.SUPREMUM_EX_INCLUDED);
+	}
+	
+	@Override
+	public void remove(final Interval<E> i) {
+		checkComparator(i);
+		if (!i.isEmpty()) {
+			remove(i.hasInfimum() ? i.infimum() : null, i.hasSupremum() ? i.supremum() : null, i.config);
+		}
+	}
+	
+	@Override
+	public void remove(final E e) {
+		remove(e, e, Interval.INFIMUM_EX_INCLUDED | Interval.SUPREMUM_EX_INCLUDED);
+	}
+	
+	@Override
+	public void clear() {
+		root = null;
+		size = 0;
+	}
+	
+	private Node<E> insert(final Node<E> node, final Node<E> entry) {
+		if (node == null) {
+			return entry;
+		} else if (compareLower(entry, node.lower, LongIntervalSet.lowerSide(node.config)) < 0) {
+			node.left = insert(node.left, entry);
+		} else {
+			node.right = insert(node.right, entry);
+		}
+		return AvlNode.balance(node);
+	}
+	
+	/**
+	 * Removes entry from the tree below node. The other nodes keep their
+	 * identity: a node with two children is replaced by its successor node
+	 * instead of taking over its bounds.
+	 */
+	private Node<E> delete(final Node<E> node, final Node<E> entry) {
+		if (node == entry) {
+			if (node.left == null) {
+				return node.right;
+			} else if (node.right == null) {
+				return node.left;
+			}
+			Node<E> successor = node.right;
+			while (successor.left != null) {
+				successor = successor.left;
+			}
+			successor.right = deleteFirst(node.right);
+			successor.left = node.left;
+			return AvlNode.balance(successor);
+		} else if (compareLower(entry, node.lower, LongIntervalSet.lowerSide(node.config)) < 0) {
+			node.left = delete(node.left, entry);
+		} else {
+			node.right = delete(node.right, entry);
+		}
+		return AvlNode.balance(node);
+	}
+	
+	private Node<E> deleteFirst(final Node<E> node) {
+		if (node.left == null) {
+			return node.right;
+		}
+		node.left = deleteFirst(node.left);
+		return AvlNode.balance(node);
+	}
+	
+	/**
+	 * Splits along subtrees like the spliterator of
+	 * {@link AbstractSeparateIntervalSet}. The stack holds subtrees still to
+	 * be visited, nodes, whose right subtree is still to be visited, and
+	 * single nodes, with the next one on top.
+	 */
+	private class TreeSpliterator implements Spliterator<Interval<E>> {
+		private static final byte SUBTREE = 0;
+		private static final byte NODE_AND_RIGHT = 1;
+		private static final byte NODE = 2;
+		
+		private Node<E>[] nodes;
+		private byte[] kinds;
+		private int depth;
+		private long estimate;
+		/**
+		 * Whether estimate is exact, which holds until the first split.
+		 */
+		private boolean exact;
+		
+		@SuppressWarnings("unchecked")
+		public TreeSpliterator(final Node<E> node, final long estimate, final boolean exact) {
+			nodes = (Node<E>[]) new Node<?>[Math.max(AvlNode.height(node), 1)];
+			kinds = new byte[nodes.length];
+			this.estimate = estimate;
+			this.exact = exact;
+			if (node != null) {
+				push(node, SUBTREE);
+			}
+		}
+		
+		private void push(final Node<E> node, final byte kind) {
+			if (depth == nodes.length) {
+				nodes = Arrays.copyOf(nodes, 2 * depth + 1);
+				kinds = Arrays.copyOf(kinds, 2 * depth + 1);
+			}
+			nodes[depth] = node;
+			kinds[depth++] = kind;
+		}
+		
+		private void descend(Node<E> node) {
+			while (node != null) {
+				push(node, NODE_AND_RIGHT);
+				node = node.left;
+			}
+		}
+		
+		@Override
+		public boolean tryAdvance(final Consumer<? super Interval<E>> action) {
+			while (depth > 0) {
+				final Node<E> node = nodes[--depth];
+				final byte kind = kinds[depth];
+				nodes[depth] = null;
+				if (kind == SUBTREE) {
+					descend(node);
+				} else {
+					if (kind == NODE_AND_RIGHT) {
+						descend(node.right);
+					}
+					if (estimate > 0) {
+						estimate--;
+					}
+					action.accept(new Interval<E>(comparator, node.lower, node.upper, node.config));
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		@Override
+		public Spliterator<Interval<E>> trySplit() {
+			final TreeSpliterator prefix = new TreeSpliterator(null, estimate >>> 1, false);
+			if (depth > 1) {
+				for (int k = 1; k < depth; k++) {
+					prefix.push(nodes[k], kinds[k]);
+					nodes[k] = null;
+				}
+				depth = 1;
+			} else if (depth == 0 || kinds[0] == NODE) {
+				return null;
+			} else if (kinds[0] == SUBTREE) {
+				final Node<E> node = nodes[0];
+				kinds[0] = NODE_AND_RIGHT;
+				if (node.left == null) {
+					return trySplit();
+				}
+				prefix.push(node.left, SUBTREE);
+			} else {
+				final Node<E> node = nodes[0];
+				if (node.right == null) {
+					return null;
+				}
+				if (node.right.left != null) {
+					prefix.push(node.right.left, SUBTREE);
+				}
+				prefix.push(node, NODE);
+				nodes[0] = node.right;
+			}
+			estimate -= prefix.estimate;
+			exact = false;
+			return prefix;
+		}
+		
+		@Override
+		public long estimateSize() {
+			return estimate;
+		}
+		
+		@Override
+		public int characteristics() {
+			return ORDERED | SORTED | DISTINCT | NONNULL | (exact ? SIZED : 0);
+		}
+		
+		@Override
+		public Comparator<? super Interval<E>> getComparator() {
+			return Interval::compareInfima;
+		}
+	}
+	
+	private static class Node<E> extends AvlNode<Node<E>> {
+		protected E lower;
+		protected E upper;
+		/**
+		 * The {@link Interval} flags of the bounds.
+		 */
+		protected int config;
+		
+		public Node(final E lower, final E upper, final int config) {
+			this.lower = lower;
+			this.upper = upper;
+			this.config = config;
+		}
+		
+		public void setLower(final E value, final int side) {
+			lower = side == -2 ? null : value;
+			config = (config & Interval.SUPREMUM_EX_INCLUDED) | LongIntervalSet.lowerConfig(side);
+		}
+		
+		public void setUpper(final E value, final int side) {
+			upper = side == 2 ? null : value;
+			config = (config & Interval.INFIMUM_EX_INCLUDED) | LongIntervalSet.upperConfig(side);
+		}
+	}
+}
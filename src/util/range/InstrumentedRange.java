@@ -0,0 +1,366 @@
+package util.range;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link WritableRange}, that records the latency of every call to the
+ * wrapped range in a {@link LatencyHistogram} per {@link Operation}. The
+ * histograms are lock-free and recording allocates nothing, so the wrapper
+ * may stay in place in production. The histograms count calls, that threw,
+ * too.
+ */
+public class InstrumentedRange<E> implements WritableRange<E> {
+	public enum Operation {
+		IS_EMPTY,
+		IS_SET,
+		TO_SET,
+		CONTAINS,
+		INTERSECTS_RANGE,
+		INTERSECTS_INTERVAL,
+		HAS_INFIMUM,
+		INFIMUM,
+		IS_INFIMUM_INCLUDED,
+		HAS_SUPREMUM,
+		SUPREMUM,
+		IS_SUPREMUM_INCLUDED,
+		IS_LOWER_BOUND,
+		IS_UPPER_BOUND,
+		IS_STRICT_LOWER_BOUND,
+		IS_STRICT_UPPER_BOUND,
+		TO_SEPARATE_INTERVAL_SET,
+		UNION_RANGE,
+		UNION_SET,
+		UNION_INTERVAL,
+		ADD,
+		REMOVE_RANGE,
+		REMOVE_SET,
+		REMOVE_INTERVAL,
+		REMOVE,
+		CLEAR
+	}
+	
+	private final WritableRange<E> range;
+	private final LatencyHistogram[] histograms;
+	
+	public InstrumentedRange(final WritableRange<E> range) {
+		this.range = range;
+		this.histograms = new LatencyHistogram[Operation.values().length];
+		for (int k = 0; k < histograms.length; k++) {
+			histograms[k] = new LatencyHistogram();
+		}
+	}
+	
+	/**
+	 * Returns the wrapped range. Calls to it are not recorded.
+	 */
+	public WritableRange<E> unwrap() {
+		return range;
+	}
+	
+	/**
+	 * Returns the live histogram of operation.
+	 */
+	public LatencyHistogram histogram(final Operation operation) {
+		return histograms[operation.ordinal()];
+	}
+	
+	/**
+	 * Returns copies of the histograms of all operations.
+	 */
+	public Map<Operation, LatencyHistogram> snapshot() {
+		final Map<Operation, LatencyHistogram> snapshot = new EnumMap<Operation, LatencyHistogram>(Operation.class);
+		for (final Operation operation : Operation.values()) {
+			snapshot.put(operation, histograms[operation.ordinal()].snapshot());
+		}
+		return snapshot;
+	}
+	
+	/**
+	 * Returns copies of the histograms of all operations and clears them, so
+	 * that consecutive snapshots cover disjoint periods.
+	 */
+	public Map<Operation, LatencyHistogram> snapshotAndReset() {
+		final Map<Operation, LatencyHistogram> snapshot = new EnumMap<Operation, LatencyHistogram>(Operation.class);
+		for (final Operation operation : Operation.values()) {
+			snapshot.put(operation, histograms[operation.ordinal()].snapshotAndReset());
+		}
+		return snapshot;
+	}
+	
+	public void reset() {
+		for (final LatencyHistogram histogram : histograms) {
+			histogram.reset();
+		}
+	}
+	
+	private void record(final Operation operation, final long start) {
+		histograms[operation.ordinal()].record(System.nanoTime() - start);
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		final long start = System.nanoTime();
+		try {
+			return range.isEmpty();
+		} finally {
+			record(Operation.IS_EMPTY, start);
+		}
+	}
+	
+	@Override
+	public boolean isSet() {
+		final long start = System.nanoTime();
+		try {
+			return range.isSet();
+		} finally {
+			record(Operation.IS_SET, start);
+		}
+	}
+	
+	@Override
+	public Set<E> toSet() {
+		final long start = System.nanoTime();
+		try {
+			return range.toSet();
+		} finally {
+			record(Operation.TO_SET, start);
+		}
+	}
+	
+	@Override
+	public boolean contains(final E e) {
+		final long start = System.nanoTime();
+		try {
+			return range.contains(e);
+		} finally {
+			record(Operation.CONTAINS, start);
+		}
+	}
+	
+	@Override
+	public boolean intersects(final Range<E> r) {
+		final long start = System.nanoTime();
+		try {
+			return range.intersects(r);
+		} finally {
+			record(Operation.INTERSECTS_RANGE, start);
+		}
+	}
+	
+	@Override
+	public boolean intersects(final Interval<E> i) {
+		final long start = System.nanoTime();
+		try {
+			return range.intersects(i);
+		} finally {
+			record(Operation.INTERSECTS_INTERVAL, start);
+		}
+	}
+	
+	@Override
+	public boolean hasInfimum() {
+		final long start = System.nanoTime();
+		try {
+			return range.hasInfimum();
+		} finally {
+			record(Operation.HAS_INFIMUM, start);
+		}
+	}
+	
+	@Override
+	public E infimum() {
+		final long start = System.nanoTime();
+		try {
+			return range.infimum();
+		} finally {
+			record(Operation.INFIMUM, start);
+		}
+	}
+	
+	@Override
+	public boolean isInfimumIncluded() {
+		final long start = System.nanoTime();
+		try {
+			return range.isInfimumIncluded();
+		} finally {
+			record(Operation.IS_INFIMUM_INCLUDED, start);
+		}
+	}
+	
+	@Override
+	public boolean hasSupremum() {
+		final long start = System.nanoTime();
+		try {
+			return range.hasSupremum();
+		} finally {
+			record(Operation.HAS_SUPREMUM, start);
+		}
+	}
+	
+	@Override
+	public E supremum() {
+		final long start = System.nanoTime();
+		try {
+			return range.supremum();
+		} finally {
+			record(Operation.SUPREMUM, start);
+		}
+	}
+	
+	@Override
+	public boolean isSupremumIncluded() {
+		final long start = System.nanoTime();
+		try {
+			return range.isSupremumIncluded();
+		} finally {
+			record(Operation.IS_SUPREMUM_INCLUDED, start);
+		}
+	}
+	
+	@Override
+	public boolean isLowerBound(final E e) {
+		final long start = System.nanoTime();
+		try {
+			return range.isLowerBound(e);
+		} finally {
+			record(Operation.IS_LOWER_BOUND, start);
+		}
+	}
+	
+	@Override
+	public boolean isUpperBound(final E e) {
+		final long start = System.nanoTime();
+		try {
+			return range.isUpperBound(e);
+		} finally {
+			record(Operation.IS_UPPER_BOUND, start);
+		}
+	}
+	
+	@Override
+	public boolean isStrictLowerBound(final E e) {
+		final long start = System.nanoTime();
+		try {
+			return range.isStrictLowerBound(e);
+		} finally {
+			record(Operation.IS_STRICT_LOWER_BOUND, start);
+		}
+	}
+	
+	@Override
+	public boolean isStrictUpperBound(final E e) {
+		final long start = System.nanoTime();
+		try {
+			return range.isStrictUpperBound(e);
+		} finally {
+			record(Operation.IS_STRICT_UPPER_BOUND, start);
+		}
+	}
+	
+	@Override
+	public SeparateIntervalSet<E> toSeparateIntervalSet() {
+		final long start = System.nanoTime();
+		try {
+			return range.toSeparateIntervalSet();
+		} finally {
+			record(Operation.TO_SEPARATE_INTERVAL_SET, start);
+		}
+	}
+	
+	@Override
+	public void union(final Range<E> r) {
+		final long start = System.nanoTime();
+		try {
+			range.union(r);
+		} finally {
+			record(Operation.UNION_RANGE, start);
+		}
+	}
+	
+	@Override
+	public void union(final Set<E> s) {
+		final long start = System.nanoTime();
+		try {
+			range.union(s);
+		} finally {
+			record(Operation.UNION_SET, start);
+		}
+	}
+	
+	@Override
+	public void union(final Interval<E> i) {
+		final long start = System.nanoTime();
+		try {
+			range.union(i);
+		} finally {
+			record(Operation.UNION_INTERVAL, start);
+		}
+	}
+	
+	@Override
+	public void add(final E e) {
+		final long start = System.nanoTime();
+		try {
+			range.add(e);
+		} finally {
+			record(Operation.ADD, start);
+		}
+	}
+	
+	@Override
+	public void remove(final Range<E> r) {
+		final long start = System.nanoTime();
+		try {
+			range.remove(r);
+		} finally {
+			record(Operation.REMOVE_RANGE, start);
+		}
+	}
+	
+	@Override
+	public void remove(final Set<E> s) {
+		final long start = System.nanoTime();
+		try {
+			range.remove(s);
+		} finally {
+			record(Operation.REMOVE_SET, start);
+		}
+	}
+	
+	@Override
+	public void remove(final Interval<E> i) {
+		final long start = System.nanoTime();
+		try {
+			range.remove(i);
+		} finally {
+			record(Operation.REMOVE_INTERVAL, start);
+		}
+	}
+	
+	@Override
+	public void remove(final E e) {
+		final long start = System.nanoTime();
+		try {
+			range.remove(e);
+		} finally {
+			record(Operation.REMOVE, start);
+		}
+	}
+	
+	@Override
+	public void clear() {
+		final long start = System.nanoTime();
+		try {
+			range.clear();
+		} finally {
+			record(Operation.CLEAR, start);
+		}
+	}
+	
+	@Override
+	public String toString() {
+		return range.toString();
+	}
+}
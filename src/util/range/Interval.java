@@ -88,6 +88,66 @@ public class Interval<E> implements Range<E> {
 				: ((Comparable<? super E>) e1).compareTo(e2) : this.comparator.compare(e1, e2);
 	}
 	
+	/**
+	 * Compares the lower bounds of this and i. A missing infimum is lower than
+	 * any other bound, an included infimum is lower than an excluded one of
+	 * the same value. Both Intervals must not be empty.
+	 */
+	int compareInfima(final Interval<E> i) {
+		if (!this.hasInfimum()) {
+			return i.hasInfimum() ? -1 : 0;
+		} else if (!i.hasInfimum()) {
+			return 1;
+		}
+		final int c = this.compare(this.infimum, i.infimum);
+		if (c != 0) {
+			return c;
+		}
+		return (i.config & INFIMUM_INCLUDED) - (this.config & INFIMUM_INCLUDED);
+	}
+	
+	/**
+	 * Compares the upper bounds of this and i. A missing supremum is higher
+	 * than any other bound, an included supremum is higher than an excluded
+	 * one of the same value. Both Intervals must not be empty.
+	 */
+	int compareSuprema(final Interval<E> i) {
+		if (!this.hasSupremum()) {
+			return i.hasSupremum() ? 1 : 0;
+		} else if (!i.hasSupremum()) {
+			return -1;
+		}
+		final int c = this.compare(this.supremum, i.supremum);
+		if (c != 0) {
+			return c;
+		}
+		return ((this.config & SUPREMUM_INCLUDED) - (i.config & SUPREMUM_INCLUDED)) >> 1;
+	}
+	
+	/**
+	 * Compares the lower bound of this with the upper bound of i. The result
+	 * is negative, if this and i share an element, zero, if they only touch
+	 * and positive, if there is a gap between i and this. Both Intervals must
+	 * not be empty.
+	 */
+	int compareInfimumToSupremum(final Interval<E> i) {
+		if (!this.hasInfimum() || !i.hasSupremum()) {
+			return -1;
+		}
+		final int c = this.compare(this.infimum, i.supremum);
+		if (c != 0) {
+			return c;
+		}
+		switch ((this.config & INFIMUM_INCLUDED) | (i.config & SUPREMUM_INCLUDED)) {
+		case INFIMUM_INCLUDED | SUPREMUM_INCLUDED:
+			return -1;
+		case 0:
+			return 1;
+		default:
+			return 0;
+		}
+	}
+	
 	public Comparator<? super E> comparator() {
 		return this.comparator;
 	}
@@ -157,38 +217,8 @@ public class Interval<E> implements Range<E> {
 			throw new IncompatibleComparatorException();
 		} else if (this.isEmpty() || i.isEmpty()) {
 			return true;
-		} else if (this.hasInfimum()) {// TODO
-			if (this.hasSupremum()) {
-				if (i.hasInfimum()) {
-					if (i.hasSupremum()) {
-						return this.compare(i.infimum, this.supremum) <= (this.isSupremumIncluded()
-								|| i.isInfimumIncluded() ? 0 : -1)
-								|| this.compare(this.infimum, i.supremum) <= (this.isInfimumIncluded()
-										|| i.isSupremumIncluded() ? 0 : -1);
-					} else {
-						return this.compare(i.infimum, this.supremum) <= (this.isSupremumIncluded()
-								|| i.isInfimumIncluded() ? 0 : -1);
-					}
-				} else {
-					return this.compare(this.infimum, i.supremum) <= (this.isInfimumIncluded()
-							|| i.isSupremumIncluded() ? 0 : -1);
-				}
-			} else {
-				if (i.hasSupremum()) {
-					return this.compare(this.infimum, i.supremum) <= (this.isInfimumIncluded()
-							|| i.isSupremumIncluded() ? 0 : -1);
-				} else {
-					return true;
-				}
-			}
 		} else {
-			if (this.hasSupremum() && i.hasInfimum()) {
-				return this.compare(this.supremum, i.infimum) >= (this.isSupremumIncluded() || i.isInfimumIncluded()
-						? 0
-						: 1);
-			} else {
-				return true;
-			}
+			return this.compareInfimumToSupremum(i) <= 0 && i.compareInfimumToSupremum(this) <= 0;
 		}
 	}
 	
@@ -198,33 +228,8 @@ public class Interval<E> implements Range<E> {
 			throw new IncompatibleComparatorException();
 		} else if (this.isEmpty() || i.isEmpty()) {
 			return false;
-		} else if (this.hasInfimum()) {
-			if (this.hasSupremum()) {
-				if (i.contains(infimum)) {
-					return (!i.hasSupremum() && comparator.compare(this.infimum, i.supremum) != 0)
-							|| (this.isInfimumIncluded() && i.isSupremumIncluded());
-				} else if (i.contains(supremum)) {
-					return (!i.hasInfimum() && comparator.compare(this.supremum, i.supremum) != 0)
-							|| (this.isSupremumIncluded() && i.isInfimumIncluded());
-				} else {
-					return this.contains(i.infimum);
-				}
-			} else {
-				if (i.hasSupremum()) {
-					return this.compare(this.infimum, i.supremum) <= (this.isInfimumIncluded()
-							&& i.isSupremumIncluded() ? 0 : -1);
-				} else {
-					return true;
-				}
-			}
 		} else {
-			if (this.hasSupremum() && i.hasInfimum()) {
-				return this.compare(this.supremum, i.infimum) >= (this.isSupremumIncluded() && i.isInfimumIncluded()
-						? 0
-						: 1);
-			} else {
-				return true;
-			}
+			return this.compareInfimumToSupremum(i) < 0 && i.compareInfimumToSupremum(this) < 0;
 		}
 	}
 	
@@ -270,7 +275,7 @@ public class Interval<E> implements Range<E> {
 		if (this.hasSupremum()) {
 			return (this.config & SUPREMUM_INCLUDED) != 0;
 		} else {
-			throw new NoSuchExtremumException("Infimum");
+			throw new NoSuchExtremumException("Supremum");
 		}
 	}
 	
@@ -302,18 +307,56 @@ public class Interval<E> implements Range<E> {
 		}
 	}
 	
+	/**
+	 * Returns whether o is an Interval with the same comparator and the same
+	 * bounds as this. Bounds are compared with the comparator, so hashCode()
+	 * is only consistent with equals, if the comparator is consistent with
+	 * the equals of E. All empty Intervals are equal.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean equals(final Object o) {
+		if (o == this) {
+			return true;
+		} else if (!(o instanceof Interval)) {
+			return false;
+		}
+		final Interval<E> i = (Interval<E>) o;
+		if (this.isEmpty() || i.isEmpty()) {
+			return this.isEmpty() == i.isEmpty();
+		} else if (this.comparator != i.comparator || this.config != i.config) {
+			return false;
+		}
+		try {
+			return this.compareInfima(i) == 0 && this.compareSuprema(i) == 0;
+		} catch (final ClassCastException e) {
+			return false;
+		}
+	}
+	
+	@Override
+	public int hashCode() {
+		if (this.isEmpty()) {
+			return 0;
+		}
+		int h = this.config;
+		h = 31 * h + (this.hasInfimum() ? this.infimum.hashCode() : 0);
+		h = 31 * h + (this.hasSupremum() ? this.supremum.hashCode() : 0);
+		return h;
+	}
+	
 	@Override
 	public String toString() {
 		return this.isEmpty() ? "O" : (this.hasInfimum() ? (this.isInfimumIncluded() ? "[" : "(")
-				+ this.infimum.toString() : "(")
-				+ (this.hasInfimum() ? this.infimum.toString() + (this.isInfimumIncluded() ? "]" : ")") : ")");
+				+ this.infimum.toString() : "(") + ","
+				+ (this.hasSupremum() ? this.supremum.toString() + (this.isSupremumIncluded() ? "]" : ")") : ")");
 	}
 	
 	@Override
 	public SeparateIntervalSet<E> toSeparateIntervalSet() {
-		final SeparateIntervalSet<E> dis = new SeparateIntervalSet<E>();
+		final SeparateIntervalSet<E> dis = new SeparateIntervalSet<E>(this.comparator);
 		dis.union(this);
-		return null;
+		return dis;
 	}
 	
 	public static <E> Interval<? extends E> intersection(Interval<E> i1, Interval<? extends E> i2) {
@@ -326,7 +369,7 @@ public class Interval<E> implements Range<E> {
 			int infConf = 0;
 			if (i1.hasInfimum()) {
 				if (i2.hasInfimum()) {
-					int c = i1.comparator.compare(i1.infimum, i2.infimum);
+					int c = i1.compare(i1.infimum, i2.infimum);
 					if (c == 0) {
 						inf = i1.infimum;
 						infConf = i1.config & i2.config & INFIMUM_INCLUDED | INFIMUM_EXISTS;
@@ -349,7 +392,7 @@ public class Interval<E> implements Range<E> {
 			int supConf = 0;
 			if (i1.hasSupremum()) {
 				if (i2.hasSupremum()) {
-					int c = i1.comparator.compare(i1.supremum, i2.supremum);
+					int c = i1.compare(i1.supremum, i2.supremum);
 					if (c == 0) {
 						sup = i1.supremum;
 						supConf = i1.config & i2.config & SUPREMUM_INCLUDED | SUPREMUM_EXISTS;
@@ -380,49 +423,18 @@ public class Interval<E> implements Range<E> {
 		} else if (i2.isEmpty()) {
 			return new Interval<E>(i1.comparator, i1.infimum, i1.supremum, i1.config);
 		} else {
-			if (i1.hasSupremum() && i2.hasInfimum()) {
-				if (i1.comparator.compare(i1.supremum, i2.infimum) <= (i1.isSupremumIncluded()
-						|| i2.isInfimumIncluded() ? 1 : 0)) {
-					throw new IllegalArgumentException("Intervals are not connected.");
-				}
-			}
-			if (i2.hasSupremum() && i1.hasInfimum()) {
-				if (i1.comparator.compare(i2.supremum, i1.infimum) <= (i2.isSupremumIncluded()
-						|| i1.isInfimumIncluded() ? 1 : 0)) {
-					throw new IllegalArgumentException("Intervals are not connected.");
-				}
-			}
-			E inf = null;
-			int infConf = 0;
-			if (i1.hasInfimum() && i2.hasInfimum()) {
-				int c = i1.comparator.compare(i1.infimum, i2.infimum);
-				if (c == 0) {
-					inf = i1.infimum;
-					infConf = (i1.config | i2.config) & INFIMUM_INCLUDED | INFIMUM_EXISTS;
-				} else if (c < 0) {
-					inf = i1.infimum;
-					infConf = i1.config & INFIMUM_INCLUDED | INFIMUM_EXISTS;
-				} else {
-					inf = i2.infimum;
-					infConf = i2.config & INFIMUM_INCLUDED | INFIMUM_EXISTS;
-				}
+			@SuppressWarnings("unchecked")
+			final Interval<E> j = (Interval<E>) i2;
+			if (i1.compareInfimumToSupremum(j) > 0 || j.compareInfimumToSupremum(i1) > 0) {
+				throw new IllegalArgumentException("Intervals are not connected.");
 			}
-			E sup = null;
-			int supConf = 0;
-			if (i1.hasInfimum() && i2.hasInfimum()) {
-				int c = i1.comparator.compare(i1.supremum, i2.supremum);
-				if (c == 0) {
-					sup = i1.supremum;
-					supConf = (i1.config | i2.config) & SUPREMUM_INCLUDED | SUPREMUM_EXISTS;
-				} else if (c < 0) {
-					sup = i2.supremum;
-					supConf = i2.config & SUPREMUM_INCLUDED | SUPREMUM_EXISTS;
-				} else {
-					sup = i1.supremum;
-					supConf = i1.config & SUPREMUM_INCLUDED | SUPREMUM_EXISTS;
-				}
+			final Interval<E> lower = i1.compareInfima(j) <= 0 ? i1 : j;
+			final Interval<E> upper = i1.compareSuprema(j) >= 0 ? i1 : j;
+			if (lower == upper) {
+				return lower;
 			}
-			return new Interval<E>(i1.comparator, inf, sup, infConf | supConf);
+			return new Interval<E>(i1.comparator, lower.infimum, upper.supremum, (lower.config & INFIMUM_EX_INCLUDED)
+					| (upper.config & SUPREMUM_EX_INCLUDED));
 		}
 	}
 	
@@ -448,19 +460,9 @@ public class Interval<E> implements Range<E> {
 		} else if (this.isEmpty() || i.isEmpty()) {
 			return false;
 		} else {
-			if (this.hasSupremum() && i.hasInfimum()) {
-				if (this.comparator.compare(this.supremum, i.infimum) <= (this.isSupremumIncluded()
-						|| i.isInfimumIncluded() ? 1 : 0)) {
-					return false;
-				}
-			}
-			if (i.hasSupremum() && this.hasInfimum()) {
-				if (this.comparator.compare(i.supremum, this.infimum) <= (i.isSupremumIncluded()
-						|| this.isInfimumIncluded() ? 1 : 0)) {
-					return false;
-				}
-			}
-			return true;
+			@SuppressWarnings("unchecked")
+			final Interval<E> j = (Interval<E>) i;
+			return this.compareInfimumToSupremum(j) <= 0 && j.compareInfimumToSupremum(this) <= 0;
 		}
 	}
 	
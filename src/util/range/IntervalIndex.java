@@ -0,0 +1,281 @@
+package util.range;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * An index of possibly overlapping {@link Interval}s with payloads. Unlike
+ * {@link SeparateIntervalSet} it never merges its keys, so a query can tell
+ * which of the stored Intervals cover an element. The entries are kept in an
+ * AVL tree ordered by infimum and every node knows the Interval with the
+ * highest supremum in its subtree, which lets stabbing and overlap queries
+ * skip every subtree that cannot contribute. Both run in O(log n + k) for k
+ * results.
+ */
+public class IntervalIndex<E, V> {
+	private final Comparator<? super E> comparator;
+	private Node<E, V> root;
+	private int size;
+	private long sequence;
+	
+	public IntervalIndex() {
+		this(null);
+	}
+	
+	public IntervalIndex(final Comparator<? super E> comparator) {
+		this.comparator = comparator;
+		this.root = null;
+		this.size = 0;
+		this.sequence = 0;
+	}
+	
+	public Comparator<? super E> comparator() {
+		return comparator;
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public boolean isEmpty() {
+		return root == null;
+	}
+	
+	public void clear() {
+		root = null;
+		size = 0;
+	}
+	
+	/**
+	 * Adds an entry. Equal keys may be added any number of times.
+	 */
+	public void put(final Interval<E> key, final V value) {
+		checkComparator(key);
+		if (!key.isEmpty()) {
+			root = insert(root, new Node<E, V>(key, value, sequence++));
+			size++;
+		}
+	}
+	
+	/**
+	 * Removes one entry with an equal key and value.
+	 * 
+	 * @return Whether there was such an entry.
+	 */
+	public boolean remove(final Interval<E> key, final V value) {
+		checkComparator(key);
+		if (key.isEmpty()) {
+			return false;
+		}
+		final Node<E, V> node = find(root, key, value);
+		if (node == null) {
+			return false;
+		}
+		root = delete(root, node);
+		size--;
+		return true;
+	}
+	
+	/**
+	 * Returns all entries whose key contains e, ordered by key.
+	 */
+	public List<Map.Entry<Interval<E>, V>> allContaining(final E e) {
+		return allIntersecting(new Interval<E>(comparator, e, e, Interval.INFIMUM_EX_INCLUDED
+				| Interval.SUPREMUM_EX_INCLUDED));
+	}
+	
+	/**
+	 * Returns all entries whose key shares an element with i, ordered by key.
+	 */
+	public List<Map.Entry<Interval<E>, V>> allIntersecting(final Interval<E> i) {
+		checkComparator(i);
+		final List<Map.Entry<Interval<E>, V>> result = new ArrayList<Map.Entry<Interval<E>, V>>();
+		if (!i.isEmpty()) {
+			collect(root, i, result);
+		}
+		return result;
+	}
+	
+	/**
+	 * Iterates all entries ordered by key.
+	 */
+	public Iterator<Map.Entry<Interval<E>, V>> iterateEntries() {
+		final ArrayDeque<Node<E, V>> path = new ArrayDeque<Node<E, V>>();
+		for (Node<E, V> node = root; node != null; node = node.left) {
+			path.push(node);
+		}
+		return new Iterator<Map.Entry<Interval<E>, V>>() {
+			@Override
+			public boolean hasNext() {
+				return !path.isEmpty();
+			}
+			
+			@Override
+			public Map.Entry<Interval<E>, V> next() {
+				if (path.isEmpty()) {
+					throw new NoSuchElementException();
+				}
+				final Node<E, V> node = path.pop();
+				for (Node<E, V> n = node.right; n != null; n = n.left) {
+					path.push(n);
+				}
+				return node;
+			}
+		};
+	}
+	
+	private void checkComparator(final Interval<E> i) {
+		if (i.comparator() != comparator) {
+			throw new IncompatibleComparatorException();
+		}
+	}
+	
+	private void collect(final Node<E, V> node, final Interval<E> i, final List<Map.Entry<Interval<E>, V>> out) {
+		if (node == null || i.compareInfimumToSupremum(node.max) >= 0) {
+			return;
+		}
+		collect(node.left, i, out);
+		if (node.key.compareInfimumToSupremum(i) >= 0) {
+			return;
+		}
+		if (node.key.intersects(i)) {
+			out.add(node);
+		}
+		collect(node.right, i, out);
+	}
+	
+	private static <E, V> int compare(final Node<E, V> a, final Node<E, V> b) {
+		int c = a.key.compareInfima(b.key);
+		if (c == 0) {
+			c = a.key.compareSuprema(b.key);
+		}
+		return c != 0 ? c : Long.compare(a.sequence, b.sequence);
+	}
+	
+	private Node<E, V> find(final Node<E, V> node, final Interval<E> key, final V value) {
+		if (node == null) {
+			return null;
+		}
+		int c = key.compareInfima(node.key);
+		if (c == 0) {
+			c = key.compareSuprema(node.key);
+		}
+		if (c < 0) {
+			return find(node.left, key, value);
+		} else if (c > 0) {
+			return find(node.right, key, value);
+		} else if (Objects.equals(value, node.value)) {
+			return node;
+		}
+		final Node<E, V> left = find(node.left, key, value);
+		return left != null ? left : find(node.right, key, value);
+	}
+	
+	private Node<E, V> insert(final Node<E, V> node, final Node<E, V> entry) {
+		if (node == null) {
+			return entry;
+		} else if (compare(entry, node) < 0) {
+			node.left = insert(node.left, entry);
+		} else {
+			node.right = insert(node.right, entry);
+		}
+		return AvlNode.balance(node);
+	}
+	
+	private Node<E, V> delete(final Node<E, V> node, final Node<E, V> entry) {
+		final int c = compare(entry, node);
+		if (c < 0) {
+			node.left = delete(node.left, entry);
+		} else if (c > 0) {
+			node.right = delete(node.right, entry);
+		} else if (node.left == null) {
+			return node.right;
+		} else if (node.right == null) {
+			return node.left;
+		} else {
+			Node<E, V> successor = node.right;
+			while (successor.left != null) {
+				successor = successor.left;
+			}
+			successor.right = delete(node.right, successor);
+			successor.left = node.left;
+			return AvlNode.balance(successor);
+		}
+		return AvlNode.balance(node);
+	}
+	
+	private static class Node<E, V> extends AvlNode<Node<E, V>> implements Map.Entry<Interval<E>, V> {
+		protected final Interval<E> key;
+		protected V value;
+		protected final long sequence;
+		/**
+		 * The key with the highest supremum in this subtree.
+		 */
+		protected Interval<E> max;
+		
+		public Node(final Interval<E> key, final V value, final long sequence) {
+			this.key = key;
+			this.value = value;
+			this.sequence = sequence;
+			this.max = key;
+		}
+		
+		@Override
+		protected void update() {
+			super.update();
+			max = key;
+			if (left != null && left.max.compareSuprema(max) > 0) {
+				max = left.max;
+			}
+			if (right != null && right.max.compareSuprema(max) > 0) {
+				max = right.max;
+			}
+		}
+		
+		@Override
+		public Interval<E> getKey() {
+			return key;
+		}
+		
+		@Override
+		public V getValue() {
+			return value;
+		}
+		
+		@Override
+		public V setValue(final V value) {
+			final V old = this.value;
+			this.value = value;
+			return old;
+		}
+		
+		/**
+		 * Compares keys and values as specified by {@link Map.Entry#equals(Object)},
+		 * keys by their bounds as in {@link Interval#equals(Object)}.
+		 */
+		@Override
+		public boolean equals(final Object o) {
+			if (!(o instanceof Map.Entry)) {
+				return false;
+			}
+			final Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+			return Objects.equals(key, e.getKey()) && Objects.equals(value, e.getValue());
+		}
+		
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(key) ^ Objects.hashCode(value);
+		}
+		
+		@Override
+		public String toString() {
+			return key + "=" + value;
+		}
+	}
+}
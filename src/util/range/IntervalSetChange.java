@@ -0,0 +1,109 @@
+package util.range;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The effect of one operation on a {@link SeparateIntervalSet} or
+ * {@link ConcurrentIntervalSet}, as the sorted Intervals it removed and the
+ * sorted Intervals it added. Applying the change to the Intervals before it
+ * gives exactly the Intervals after it. Intervals, that the operation left
+ * unchanged, are in neither list. The {@link Kind} tells how the two lists
+ * relate.
+ */
+public final class IntervalSetChange<E> {
+	public enum Kind {
+		/**
+		 * Intervals were added, that touch no Interval of the set before.
+		 * {@link IntervalSetChange#removed()} is empty.
+		 */
+		ADDED,
+		/**
+		 * Intervals were removed entirely. {@link IntervalSetChange#added()} is
+		 * empty.
+		 */
+		REMOVED,
+		/**
+		 * A union coalesced the removed Intervals with new elements, every added
+		 * Interval is the span of the removed Intervals it covers.
+		 */
+		MERGED,
+		/**
+		 * A removal cut the removed Intervals, the added Intervals are what
+		 * remains of them, up to two per removed Interval.
+		 */
+		SPLIT,
+		/**
+		 * Both happened, as for a symmetric difference.
+		 */
+		REPLACED
+	}
+	
+	private final Kind kind;
+	private final List<Interval<E>> removed;
+	private final List<Interval<E>> added;
+	
+	IntervalSetChange(final Kind kind, final List<Interval<E>> removed, final List<Interval<E>> added) {
+		this.kind = kind;
+		this.removed = Collections.unmodifiableList(removed);
+		this.added = Collections.unmodifiableList(added);
+	}
+	
+	/**
+	 * Compares the sorted Intervals before and after a change in one sweep and
+	 * returns those, that differ, or null if none do. kind applies if there
+	 * are both removed and added Intervals.
+	 */
+	static <E> IntervalSetChange<E> of(final Kind kind, final Iterator<Interval<E>> before,
+			final Iterator<Interval<E>> after) {
+		final List<Interval<E>> removed = new ArrayList<Interval<E>>();
+		final List<Interval<E>> added = new ArrayList<Interval<E>>();
+		Interval<E> b = before.hasNext() ? before.next() : null;
+		Interval<E> a = after.hasNext() ? after.next() : null;
+		while (b != null || a != null) {
+			final int c = b == null ? 1 : a == null ? -1 : b.compareInfima(a);
+			if (c == 0 && b.compareSuprema(a) == 0) {
+				b = before.hasNext() ? before.next() : null;
+				a = after.hasNext() ? after.next() : null;
+			} else if (c <= 0) {
+				removed.add(b);
+				b = before.hasNext() ? before.next() : null;
+			} else {
+				added.add(a);
+				a = after.hasNext() ? after.next() : null;
+			}
+		}
+		if (removed.isEmpty()) {
+			return added.isEmpty() ? null : new IntervalSetChange<E>(Kind.ADDED, removed, added);
+		}
+		return new IntervalSetChange<E>(added.isEmpty() ? Kind.REMOVED : kind, removed, added);
+	}
+	
+	/**
+	 * Calls each of listeners with this change.
+	 */
+	void fire(final Iterable<IntervalSetListener<E>> listeners) {
+		for (final IntervalSetListener<E> listener : listeners) {
+			listener.changed(this);
+		}
+	}
+	
+	public Kind kind() {
+		return kind;
+	}
+	
+	public List<Interval<E>> removed() {
+		return removed;
+	}
+	
+	public List<Interval<E>> added() {
+		return added;
+	}
+	
+	@Override
+	public String toString() {
+		return kind + " -" + removed + " +" + added;
+	}
+}
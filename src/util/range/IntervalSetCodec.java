@@ -0,0 +1,324 @@
+package util.range;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * A compact binary format for sets of pairwise separated Intervals. The
+ * stream starts with a version byte, followed by one record per Interval in
+ * ascending order and an end byte. A record is a header byte holding the
+ * configuration flags of the Interval, followed by its existing bounds, which
+ * are written by an {@link ElementCodec}. Each bound is written relative to
+ * the bound before it, so numeric codecs store small differences as varints.
+ * Records are written straight from the tree and read into a list, from which
+ * the tree is built in O(n), as they are already sorted.
+ */
+public class IntervalSetCodec<E> {
+	private static final byte VERSION = 1;
+	/**
+	 * Ends the records, as no written Interval is empty.
+	 */
+	private static final byte END = Interval.EMPTY;
+	private static final int BUFFER_SIZE = 8192;
+	
+	/**
+	 * Writes and reads single elements. Both methods may throw
+	 * {@link BufferOverflowException} or {@link BufferUnderflowException} after
+	 * writing or reading only part of an element; the codec then retries at
+	 * the same position.
+	 */
+	public interface ElementCodec<E> {
+		ElementCodec<Long> LONG = encoded(Long::longValue, Long::valueOf);
+		
+		ElementCodec<Integer> INTEGER = encoded(Integer::longValue, k -> (int) k);
+		
+		ElementCodec<Double> DOUBLE = new ElementCodec<Double>() {
+			@Override
+			public void write(final ByteBuffer buffer, final Double previous, final Double e) {
+				buffer.putDouble(e);
+			}
+			
+			@Override
+			public Double read(final ByteBuffer buffer, final Double previous) {
+				return buffer.getDouble();
+			}
+		};
+		
+		/**
+		 * Writes e. previous is the bound written before, or null if there is
+		 * none.
+		 */
+		void write(ByteBuffer buffer, E previous, E e);
+		
+		/**
+		 * Reads an element written after previous, which is null if there is
+		 * none.
+		 */
+		E read(ByteBuffer buffer, E previous);
+		
+		/**
+		 * Returns a codec for elements encoded as longs, that writes the
+		 * difference to the encoding of the previous bound as a zigzag varint.
+		 */
+		static <E> ElementCodec<E> encoded(final ToLongFunction<? super E> encoder,
+				final LongFunction<? extends E> decoder) {
+			return new ElementCodec<E>() {
+				@Override
+				public void write(final ByteBuffer buffer, final E previous, final E e) {
+					writeVarLong(buffer, encoder.applyAsLong(e) - (previous == null ? 0 : encoder
+							.applyAsLong(previous)));
+				}
+				
+				@Override
+				public E read(final ByteBuffer buffer, final E previous) {
+					return decoder.apply(readVarLong(buffer) + (previous == null ? 0 : encoder.applyAsLong(previous)));
+				}
+			};
+		}
+	}
+	
+	private final Comparator<? super E> comparator;
+	private final ElementCodec<E> elements;
+	
+	/**
+	 * Creates a codec for sets in natural order.
+	 */
+	public IntervalSetCodec(final ElementCodec<E> elements) {
+		this(null, elements);
+	}
+	
+	public IntervalSetCodec(final Comparator<? super E> comparator, final ElementCodec<E> elements) {
+		this.comparator = comparator;
+		this.elements = elements;
+	}
+	
+	/**
+	 * Writes v as a zigzag encoded varint of 1 to 10 bytes.
+	 */
+	static void writeVarLong(final ByteBuffer buffer, final long v) {
+		long z = (v << 1) ^ (v >> 63);
+		while ((z & ~0x7FL) != 0) {
+			buffer.put((byte) ((z & 0x7F) | 0x80));
+			z >>>= 7;
+		}
+		buffer.put((byte) z);
+	}
+	
+	static long readVarLong(final ByteBuffer buffer) {
+		long z = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			final byte b = buffer.get();
+			z |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return (z >>> 1) ^ -(z & 1);
+			}
+		}
+		throw malformed();
+	}
+	
+	private static IllegalArgumentException malformed() {
+		return new IllegalArgumentException("Malformed interval set.");
+	}
+	
+	/**
+	 * Writes the record of i and returns the last bound written.
+	 */
+	private E write(final ByteBuffer buffer, final Interval<E> i, E previous) {
+		if (i.comparator() != comparator) {
+			throw new IncompatibleComparatorException();
+		}
+		buffer.put((byte) i.config);
+		if (i.hasInfimum()) {
+			elements.write(buffer, previous, i.infimum());
+			previous = i.infimum();
+		}
+		if (i.hasSupremum()) {
+			elements.write(buffer, previous, i.supremum());
+			previous = i.supremum();
+		}
+		return previous;
+	}
+	
+	/**
+	 * Writes the Intervals of r to buffer.
+	 * 
+	 * @throws BufferOverflowException
+	 *             If buffer is too small, leaving its position undefined.
+	 */
+	public void write(final Range<E> r, final ByteBuffer buffer) {
+		buffer.put(VERSION);
+		E previous = null;
+		final Iterator<Interval<E>> it = Ranges.intervals(r);
+		while (it.hasNext()) {
+			previous = write(buffer, it.next(), previous);
+		}
+		buffer.put(END);
+	}
+	
+	/**
+	 * Writes the Intervals of r to channel through a buffer, that is flushed
+	 * whenever the next record does not fit.
+	 */
+	public void write(final Range<E> r, final WritableByteChannel channel) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		buffer.put(VERSION);
+		E previous = null;
+		final Iterator<Interval<E>> it = Ranges.intervals(r);
+		while (it.hasNext()) {
+			final Interval<E> i = it.next();
+			while (true) {
+				final int start = buffer.position();
+				try {
+					previous = write(buffer, i, previous);
+					break;
+				} catch (final BufferOverflowException e) {
+					if (start == 0) {
+						buffer = ByteBuffer.allocate(2 * buffer.capacity());
+					} else {
+						buffer.position(start);
+						flush(buffer, channel);
+					}
+				}
+			}
+		}
+		if (!buffer.hasRemaining()) {
+			flush(buffer, channel);
+		}
+		buffer.put(END);
+		flush(buffer, channel);
+	}
+	
+	private static void flush(final ByteBuffer buffer, final WritableByteChannel channel) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+	
+	/**
+	 * Reads a set from buffer, which is left after the end byte.
+	 * 
+	 * @throws BufferUnderflowException
+	 *             If buffer ends before the set.
+	 * @throws IllegalArgumentException
+	 *             If the data is no valid set.
+	 */
+	public SeparateIntervalSet<E> read(final ByteBuffer buffer) {
+		final Decoder decoder = new Decoder();
+		if (!decoder.decode(buffer)) {
+			throw new BufferUnderflowException();
+		}
+		return decoder.result();
+	}
+	
+	/**
+	 * Reads a set from channel. The channel is read ahead in blocks, so it
+	 * should not hold anything after the set.
+	 * 
+	 * @throws EOFException
+	 *             If channel ends before the set.
+	 * @throws IllegalArgumentException
+	 *             If the data is no valid set.
+	 */
+	public SeparateIntervalSet<E> read(final ReadableByteChannel channel) throws IOException {
+		final Decoder decoder = new Decoder();
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		buffer.flip();
+		while (!decoder.decode(buffer)) {
+			buffer.compact();
+			if (!buffer.hasRemaining()) {
+				buffer.flip();
+				buffer = ByteBuffer.allocate(2 * buffer.capacity()).put(buffer);
+			}
+			if (channel.read(buffer) < 0) {
+				throw new EOFException();
+			}
+			buffer.flip();
+		}
+		return decoder.result();
+	}
+	
+	/**
+	 * Collects the records of a set, which may arrive in several parts.
+	 */
+	private class Decoder {
+		private final List<Interval<E>> intervals = new ArrayList<Interval<E>>();
+		private boolean started;
+		private E previous;
+		
+		/**
+		 * Decodes the complete records in buffer and returns whether the end
+		 * byte was reached. An incomplete record is left in buffer.
+		 */
+		public boolean decode(final ByteBuffer buffer) {
+			while (true) {
+				final int start = buffer.position();
+				try {
+					if (!started) {
+						if (buffer.get() != VERSION) {
+							throw malformed();
+						}
+						started = true;
+					} else if (!record(buffer)) {
+						return true;
+					}
+				} catch (final BufferUnderflowException e) {
+					buffer.position(start);
+					return false;
+				}
+			}
+		}
+		
+		/**
+		 * Reads the next record and returns false if it is the end byte.
+		 */
+		private boolean record(final ByteBuffer buffer) {
+			final byte config = buffer.get();
+			if (config == END) {
+				return false;
+			} else if (config < 0 || config > END) {
+				throw malformed();
+			}
+			E last = previous;
+			E infimum = null;
+			E supremum = null;
+			if ((config & Interval.INFIMUM_EXISTS) != 0) {
+				infimum = elements.read(buffer, last);
+				last = infimum;
+			}
+			if ((config & Interval.SUPREMUM_EXISTS) != 0) {
+				supremum = elements.read(buffer, last);
+				last = supremum;
+			}
+			final Interval<E> i;
+			try {
+				i = new Interval<E>(comparator, infimum, supremum, config);
+			} catch (final IllegalArgumentException e) {
+				throw malformed();
+			}
+			if (i.isEmpty() || (!intervals.isEmpty() && i.compareInfimumToSupremum(intervals.get(intervals.size()
+					- 1)) <= 0)) {
+				throw malformed();
+			}
+			intervals.add(i);
+			previous = last;
+			return true;
+		}
+		
+		public SeparateIntervalSet<E> result() {
+			return SeparateIntervalSet.ofSeparated(comparator, intervals);
+		}
+	}
+}
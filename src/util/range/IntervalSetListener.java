@@ -0,0 +1,18 @@
+package util.range;
+
+/**
+ * Receives the changes of a {@link SeparateIntervalSet}, including a
+ * {@link MeasuredIntervalSet}, or of a {@link ConcurrentIntervalSet}. The
+ * other writable sets, {@link LongIntervalSet}, {@link InlineIntervalSet},
+ * {@link EncodedIntervalSet} and {@link RoaringIntegerSet}, do not publish
+ * changes, so listening is not part of {@link WritableRange}. Listeners are
+ * called synchronously by the mutating thread, once per operation that changed
+ * the set, after the set has been updated, so they see the new content. An
+ * exception thrown by a listener propagates to the caller of the operation,
+ * which has taken effect nevertheless, and the remaining listeners are not
+ * called.
+ */
+@FunctionalInterface
+public interface IntervalSetListener<E> {
+	void changed(IntervalSetChange<E> change);
+}
@@ -0,0 +1,8 @@
+package util.range;
+
+/**
+ * The management interface of an interval set. See {@link IntervalSetMonitor}.
+ */
+public interface IntervalSetMXBean {
+	IntervalSetStats getStats();
+}
@@ -0,0 +1,42 @@
+package util.range;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Exposes the {@link IntervalSetStats} of an interval set over JMX. Every
+ * read computes fresh stats, which walks the whole tree, so the supplier must
+ * be safe to call from the JMX thread: a {@link ConcurrentIntervalSet} always
+ * is, a {@link SeparateIntervalSet} only if the supplier synchronizes with its
+ * writers. Only a SeparateIntervalSet counts coalesces and splits; the stats
+ * of a ConcurrentIntervalSet describe the structure of its current version
+ * and report zero for both counters.
+ */
+public class IntervalSetMonitor implements IntervalSetMXBean {
+	private final Supplier<IntervalSetStats> stats;
+	
+	public IntervalSetMonitor(final Supplier<IntervalSetStats> stats) {
+		this.stats = stats;
+	}
+	
+	/**
+	 * Registers a monitor at the platform MBean server as
+	 * util.range:type=IntervalSet,name=name.
+	 * 
+	 * @return The name of the registered MBean, to unregister it later.
+	 */
+	public static ObjectName register(final String name, final Supplier<IntervalSetStats> stats)
+			throws JMException {
+		final ObjectName objectName = new ObjectName("util.range:type=IntervalSet,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(new IntervalSetMonitor(stats), objectName);
+		return objectName;
+	}
+	
+	@Override
+	public IntervalSetStats getStats() {
+		return stats.get();
+	}
+}
@@ -0,0 +1,83 @@
+package util.range;
+
+/**
+ * The structure of an interval set at one point in time and the operations,
+ * that changed it so far. Obtained by {@link SeparateIntervalSet#stats()}.
+ * The getters follow the bean conventions, so the stats can be exposed
+ * through {@link IntervalSetMXBean}.
+ */
+public class IntervalSetStats {
+	/**
+	 * The estimated bytes of one tree node and its Interval, without the
+	 * bounds themselves, on a 64-bit JVM with compressed references.
+	 */
+	public static final long NODE_BYTES = 64;
+	
+	private final int intervalCount;
+	private final int height;
+	private final double averageDepth;
+	private final long coalesces;
+	private final long splits;
+	
+	public IntervalSetStats(final int intervalCount, final int height, final double averageDepth,
+			final long coalesces, final long splits) {
+		this.intervalCount = intervalCount;
+		this.height = height;
+		this.averageDepth = averageDepth;
+		this.coalesces = coalesces;
+		this.splits = splits;
+	}
+	
+	public int getIntervalCount() {
+		return intervalCount;
+	}
+	
+	/**
+	 * Returns the height of the tree, which is the maximum number of nodes
+	 * visited by a search.
+	 */
+	public int getHeight() {
+		return height;
+	}
+	
+	/**
+	 * Returns the maximum search depth, which equals the height.
+	 */
+	public int getMaxDepth() {
+		return height;
+	}
+	
+	/**
+	 * Returns the average number of nodes visited by a search ending at a
+	 * node, or 0 if there are none.
+	 */
+	public double getAverageDepth() {
+		return averageDepth;
+	}
+	
+	public long getMemoryEstimate() {
+		return intervalCount * NODE_BYTES;
+	}
+	
+	/**
+	 * Returns the number of Intervals added, that coalesced with Intervals
+	 * already in the set. Intervals already contained are not counted.
+	 */
+	public long getCoalesces() {
+		return coalesces;
+	}
+	
+	/**
+	 * Returns the number of Intervals removed from the inside of an Interval,
+	 * splitting it in two.
+	 */
+	public long getSplits() {
+		return splits;
+	}
+	
+	@Override
+	public String toString() {
+		return "intervals=" + intervalCount + ", height=" + height + ", averageDepth=" + averageDepth
+				+ ", memoryEstimate=" + getMemoryEstimate() + ", coalesces=" + coalesces + ", splits=" + splits;
+	}
+}
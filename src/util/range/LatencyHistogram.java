@@ -0,0 +1,127 @@
+package util.range;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of durations in nanoseconds with log-linear buckets
+ * in the manner of HdrHistogram: every power of two is divided into 16
+ * buckets, so a recorded value is known to within 6.25%. Recording is one
+ * atomic increment and never allocates.
+ */
+public class LatencyHistogram {
+	private static final int SUB_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+	
+	private final AtomicLongArray counts;
+	
+	public LatencyHistogram() {
+		this.counts = new AtomicLongArray(BUCKETS);
+	}
+	
+	private LatencyHistogram(final AtomicLongArray counts) {
+		this.counts = counts;
+	}
+	
+	public void record(final long nanos) {
+		counts.incrementAndGet(index(Math.max(nanos, 0)));
+	}
+	
+	private static int index(final long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		final int exponent = 63 - Long.numberOfLeadingZeros(value);
+		return ((exponent - SUB_BITS + 1) << SUB_BITS) | (int) ((value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1));
+	}
+	
+	/**
+	 * Returns the highest value falling into a bucket.
+	 */
+	private static long highest(final int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		final int shift = (index >>> SUB_BITS) - 1;
+		return ((((long) (SUB_BUCKETS | (index & (SUB_BUCKETS - 1)))) + 1) << shift) - 1;
+	}
+	
+	/**
+	 * Returns a copy of the current counts. Values recorded concurrently may
+	 * or may not be included.
+	 */
+	public LatencyHistogram snapshot() {
+		final AtomicLongArray copy = new AtomicLongArray(BUCKETS);
+		for (int k = 0; k < BUCKETS; k++) {
+			copy.set(k, counts.get(k));
+		}
+		return new LatencyHistogram(copy);
+	}
+	
+	/**
+	 * Returns a copy of the current counts and clears them, so that every
+	 * recorded value is in exactly one snapshot.
+	 */
+	public LatencyHistogram snapshotAndReset() {
+		final AtomicLongArray copy = new AtomicLongArray(BUCKETS);
+		for (int k = 0; k < BUCKETS; k++) {
+			copy.set(k, counts.getAndSet(k, 0));
+		}
+		return new LatencyHistogram(copy);
+	}
+	
+	public void reset() {
+		for (int k = 0; k < BUCKETS; k++) {
+			counts.set(k, 0);
+		}
+	}
+	
+	public long count() {
+		long count = 0;
+		for (int k = 0; k < BUCKETS; k++) {
+			count += counts.get(k);
+		}
+		return count;
+	}
+	
+	/**
+	 * Returns the value below or at which the given percentage of the
+	 * recorded values lie, or 0 if there are none.
+	 * 
+	 * @param percentile
+	 *            Between 0 and 100, e.g. 99.9 for the p999.
+	 */
+	public long percentile(final double percentile) {
+		final long count = count();
+		if (count == 0) {
+			return 0;
+		}
+		final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for (int k = 0; k < BUCKETS; k++) {
+			seen += counts.get(k);
+			if (seen >= rank) {
+				return highest(k);
+			}
+		}
+		return max();
+	}
+	
+	/**
+	 * Returns the highest recorded value, or 0 if there are none.
+	 */
+	public long max() {
+		for (int k = BUCKETS - 1; k >= 0; k--) {
+			if (counts.get(k) != 0) {
+				return highest(k);
+			}
+		}
+		return 0;
+	}
+	
+	@Override
+	public String toString() {
+		return "count=" + count() + ", p50=" + percentile(50) + "ns, p99=" + percentile(99) + "ns, p999="
+				+ percentile(99.9) + "ns, max=" + max() + "ns";
+	}
+}
@@ -0,0 +1,512 @@
+package util.range;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A set of pairwise separated Intervals of longs, kept in packed arrays
+ * instead of {@link Interval} objects. The bounds of the k-th Interval are
+ * stored at bounds[2k] and bounds[2k + 1], its configuration, using the flags
+ * of {@link Interval}, at configs[k]. Missing bounds are stored as
+ * Long.MIN_VALUE and Long.MAX_VALUE. Lookups are binary searches over
+ * primitives and the primitive overloads do not allocate, unless the arrays
+ * have to grow.
+ */
+public class LongIntervalSet implements WritableRange<Long> {
+	private long[] bounds;
+	private byte[] configs;
+	private int size;
+	
+	public LongIntervalSet() {
+		this(8);
+	}
+	
+	public LongIntervalSet(final int capacity) {
+		this.bounds = new long[2 * Math.max(capacity, 1)];
+		this.configs = new byte[Math.max(capacity, 1)];
+		this.size = 0;
+	}
+	
+	/*
+	 * A bound is compared as a cut (value, side). The side is -1 for an
+	 * included infimum or excluded supremum, which lie just below value, and 1
+	 * for an excluded infimum or included supremum, which lie just above it. A
+	 * missing infimum has side -2 at Long.MIN_VALUE, a missing supremum side 2
+	 * at Long.MAX_VALUE. An element is the cut (e, 0).
+	 */
+	
+	static int lowerSide(final int config) {
+		return (config & Interval.INFIMUM_EXISTS) == 0 ? -2 : (config & Interval.INFIMUM_INCLUDED) == 0 ? 1 : -1;
+	}
+	
+	static int upperSide(final int config) {
+		return (config & Interval.SUPREMUM_EXISTS) == 0 ? 2 : (config & Interval.SUPREMUM_INCLUDED) == 0 ? -1 : 1;
+	}
+	
+	static int lowerConfig(final int side) {
+		return side == -2 ? 0 : side == -1 ? Interval.INFIMUM_EX_INCLUDED : Interval.INFIMUM_EXISTS;
+	}
+	
+	static int upperConfig(final int side) {
+		return side == 2 ? 0 : side == 1 ? Interval.SUPREMUM_EX_INCLUDED : Interval.SUPREMUM_EXISTS;
+	}
+	
+	static int compare(final long v1, final int s1, final long v2, final int s2) {
+		return v1 != v2 ? (v1 < v2 ? -1 : 1) : s1 - s2;
+	}
+	
+	static void checkConfig(final int config) {
+		if (config > Interval.EMPTY) {
+			throw new IllegalArgumentException("Illegal configuration.");
+		} else if (((Interval.INFIMUM_INCLUDED | Interval.INFIMUM_EXISTS) & config) == Interval.INFIMUM_INCLUDED) {
+			throw new IllegalArgumentException("Illegal configuration.");
+		} else if (((Interval.SUPREMUM_INCLUDED | Interval.SUPREMUM_EXISTS) & config) == Interval.SUPREMUM_INCLUDED) {
+			throw new IllegalArgumentException("Illegal configuration.");
+		}
+	}
+	
+	private long lower(final int k) {
+		return bounds[2 * k];
+	}
+	
+	private long upper(final int k) {
+		return bounds[2 * k + 1];
+	}
+	
+	/**
+	 * Returns the index of the first Interval whose supremum lies above the cut
+	 * (v, s), or size if there is none.
+	 */
+	private int firstAbove(final long v, final int s) {
+		int lo = 0;
+		int hi = size;
+		while (lo < hi) {
+			final int mid = (lo + hi) >>> 1;
+			if (compare(upper(mid), upperSide(configs[mid]), v, s) > 0) {
+				hi = mid;
+			} else {
+				lo = mid + 1;
+			}
+		}
+		return lo;
+	}
+	
+	/**
+	 * Returns the index of the last Interval whose infimum lies below the cut
+	 * (v, s), or -1 if there is none.
+	 */
+	private int lastBelow(final long v, final int s) {
+		int lo = 0;
+		int hi = size;
+		while (lo < hi) {
+			final int mid = (lo + hi) >>> 1;
+			if (compare(lower(mid), lowerSide(configs[mid]), v, s) < 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo - 1;
+	}
+	
+	/**
+	 * Replaces the Intervals from (inclusive) to to (exclusive) by count
+	 * uninitialized slots.
+	 */
+	private void splice(final int from, final int to, final int count) {
+		final int newSize = size - (to - from) + count;
+		if (newSize > configs.length) {
+			final int capacity = Math.max(newSize, 2 * configs.length);
+			bounds = Arrays.copyOf(bounds, 2 * capacity);
+			configs = Arrays.copyOf(configs, capacity);
+		}
+		System.arraycopy(bounds, 2 * to, bounds, 2 * (from + count), 2 * (size - to));
+		System.arraycopy(configs, to, configs, from + count, size - to);
+		size = newSize;
+	}
+	
+	private void set(final int k, final long lv, final int ls, final long uv, final int us) {
+		bounds[2 * k] = lv;
+		bounds[2 * k + 1] = uv;
+		configs[k] = (byte) (lowerConfig(ls) | upperConfig(us));
+	}
+	
+	private Interval<Long> interval(final int k) {
+		return new Interval<Long>(lower(k), upper(k), configs[k]);
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	@Override
+	public boolean isSet() {
+		for (int k = 0; k < size; k++) {
+			if (configs[k] != (Interval.INFIMUM_EX_INCLUDED | Interval.SUPREMUM_EX_INCLUDED) || lower(k) != upper(k)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public Set<Long> toSet() {
+		if (!this.isSet()) {
+			throw new UnsupportedOperationException("Is no Set.");
+		}
+		final Set<Long> set = new HashSet<Long>();
+		for (int k = 0; k < size; k++) {
+			set.add(lower(k));
+		}
+		return set;
+	}
+	
+	public boolean contains(final long e) {
+		final int k = lastBelow(e, 0);
+		return k >= 0 && compare(upper(k), upperSide(configs[k]), e, 0) > 0;
+	}
+	
+	@Override
+	public boolean contains(final Long e) {
+		return contains(e.longValue());
+	}
+	
+	@Override
+	public boolean intersects(final Interval<Long> i) {
+		if (i.comparator() != null) {
+			throw new IncompatibleComparatorException();
+		}
+		return !i.isEmpty()
+				&& intersects(i.hasInfimum() ? i.infimum() : Long.MIN_VALUE, i.hasSupremum() ? i.supremum()
+						: Long.MAX_VALUE, i.config);
+	}
+	
+	/**
+	 * Whether the Interval described by infimum, supremum and the
+	 * {@link Interval} flags in config shares an element with this set.
+	 * Missing bounds are ignored.
+	 */
+	public boolean intersects(final long infimum, final long supremum, final int config) {
+		checkConfig(config);
+		if (config == Interval.EMPTY) {
+			return false;
+		}
+		final int ls = lowerSide(config);
+		final int us = upperSide(config);
+		final long lv = ls == -2 ? Long.MIN_VALUE : infimum;
+		final long uv = us == 2 ? Long.MAX_VALUE : supremum;
+		if (compare(lv, ls, uv, us) >= 0) {
+			return false;
+		}
+		final int from = firstAbove(lv, ls);
+		return from < size && compare(lower(from), lowerSide(configs[from]), uv, us) < 0;
+	}
+	
+	@Override
+	public boolean intersects(final Range<Long> r) {
+		final Iterator<Interval<Long>> it = r.toSeparateIntervalSet().iterateIntervals();
+		while (it.hasNext()) {
+			if (intersects(it.next())) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	public Iterator<Interval<Long>> iterateIntervals() {
+		return new Iterator<Interval<Long>>() {
+			private int next = 0;
+			
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+			
+			@Override
+			public Interval<Long> next() {
+				if (next >= size) {
+					throw new NoSuchElementException();
+				}
+				return interval(next++);
+			}
+		};
+	}
+	
+	/**
+	 * Returns a sized {@link Spliterator} over the Intervals in ascending
+	 * order, which splits the index range in halves.
+	 */
+	public Spliterator<Interval<Long>> spliterator() {
+		return new IndexSpliterator(0, size);
+	}
+	
+	public Stream<Interval<Long>> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+	
+	public Stream<Interval<Long>> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+	
+	@Override
+	public boolean hasInfimum() {
+		return size > 0 && (configs[0] & Interval.INFIMUM_EXISTS) != 0;
+	}
+	
+	@Override
+	public Long infimum() {
+		if (this.hasInfimum()) {
+			return lower(0);
+		} else {
+			throw new NoSuchExtremumException("Infimum");
+		}
+	}
+	
+	@Override
+	public boolean isInfimumIncluded() {
+		if (this.hasInfimum()) {
+			return (configs[0] & Interval.INFIMUM_INCLUDED) != 0;
+		} else {
+			throw new NoSuchExtremumException("Infimum");
+		}
+	}
+	
+	@Override
+	public boolean hasSupremum() {
+		return size > 0 && (configs[size - 1] & Interval.SUPREMUM_EXISTS) != 0;
+	}
+	
+	@Override
+	public Long supremum() {
+		if (this.hasSupremum()) {
+			return upper(size - 1);
+		} else {
+			throw new NoSuchExtremumException("Supremum");
+		}
+	}
+	
+	@Override
+	public boolean isSupremumIncluded() {
+		if (this.hasSupremum()) {
+			return (configs[size - 1] & Interval.SUPREMUM_INCLUDED) != 0;
+		} else {
+			throw new NoSuchExtremumException("Supremum");
+		}
+	}
+	
+	@Override
+	public boolean isLowerBound(final Long e) {
+		return this.hasInfimum() ? lower(0) >= e : this.isEmpty();
+	}
+	
+	@Override
+	public boolean isUpperBound(final Long e) {
+		return this.hasSupremum() ? upper(size - 1) <= e : this.isEmpty();
+	}
+	
+	@Override
+	public boolean isStrictLowerBound(final Long e) {
+		return this.hasInfimum() ? compare(lower(0), lowerSide(configs[0]), e, 0) > 0 : this.isEmpty();
+	}
+	
+	@Override
+	public boolean isStrictUpperBound(final Long e) {
+		return this.hasSupremum() ? compare(upper(size - 1), upperSide(configs[size - 1]), e, 0) < 0 : this
+				.isEmpty();
+	}
+	
+	@Override
+	public SeparateIntervalSet<Long> toSeparateIntervalSet() {
+		final SeparateIntervalSet<Long> set = new SeparateIntervalSet<Long>();
+		for (int k = 0; k < size; k++) {
+			set.union(interval(k));
+		}
+		return set;
+	}
+	
+	@Override
+	public String toString() {
+		if (size == 0) {
+			return "O";
+		}
+		final StringBuilder sb = new StringBuilder(interval(0).toString());
+		for (int k = 1; k < size; k++) {
+			sb.append("U").append(interval(k).toString());
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Adds the Interval described by infimum, supremum and the
+	 * {@link Interval} flags in config. Missing bounds are ignored.
+	 */
+	public void union(final long infimum, final long supremum, final int config) {
+		checkConfig(config);
+		if (config == Interval.EMPTY) {
+			return;
+		}
+		int ls = lowerSide(config);
+		int us = upperSide(config);
+		long lv = ls == -2 ? Long.MIN_VALUE : infimum;
+		long uv = us == 2 ? Long.MAX_VALUE : supremum;
+		if (compare(lv, ls, uv, us) >= 0) {
+			return;
+		}
+		// Connected Intervals may touch the new one, so the cuts are widened by one side.
+		final int from = firstAbove(lv, ls - 1);
+		final int to = lastBelow(uv, us + 1);
+		if (from <= to) {
+			if (compare(lower(from), lowerSide(configs[from]), lv, ls) < 0) {
+				lv = lower(from);
+				ls = lowerSide(configs[from]);
+			}
+			if (compare(upper(to), upperSide(configs[to]), uv, us) > 0) {
+				uv = upper(to);
+				us = upperSide(configs[to]);
+			}
+		}
+		splice(from, to + 1, 1);
+		set(from, lv, ls, uv, us);
+	}
+	
+	/**
+	 * Removes the Interval described by infimum, supremum and the
+	 * {@link Interval} flags in config. Missing bounds are ignored.
+	 */
+	public void remove(final long infimum, final long supremum, final int config) {
+		checkConfig(config);
+		if (config == Interval.EMPTY) {
+			return;
+		}
+		final int ls = lowerSide(config);
+		final int us = upperSide(config);
+		final long lv = ls == -2 ? Long.MIN_VALUE : infimum;
+		final long uv = us == 2 ? Long.MAX_VALUE : supremum;
+		if (compare(lv, ls, uv, us) >= 0) {
+			return;
+		}
+		final int from = firstAbove(lv, ls);
+		final int to = lastBelow(uv, us);
+		if (from > to) {
+			return;
+		}
+		final long fromLower = lower(from);
+		final int fromSide = lowerSide(configs[from]);
+		final long toUpper = upper(to);
+		final int toSide = upperSide(configs[to]);
+		final boolean keepLower = compare(fromLower, fromSide, lv, ls) < 0;
+		final boolean keepUpper = compare(toUpper, toSide, uv, us) > 0;
+		splice(from, to + 1, (keepLower ? 1 : 0) + (keepUpper ? 1 : 0));
+		if (keepLower) {
+			set(from, fromLower, fromSide, lv, ls);
+		}
+		if (keepUpper) {
+			set(keepLower ? from + 1 : from, uv, us, toUpper, toSide);
+		}
+	}
+	
+	public void add(final long e) {
+		if (!contains(e)) {
+			union(e, e, Interval.INFIMUM_EX_INCLUDED | Interval.SUPREMUM_EX_INCLUDED);
+		}
+	}
+	
+	public void remove(final long e) {
+		if (contains(e)) {
+			remove(e, e, Interval.INFIMUM_EX_INCLUDED | Interval.SUPREMUM_EX_INCLUDED);
+		}
+	}
+	
+	@Override
+	public void union(final Interval<Long> i) {
+		if (i.comparator() != null) {
+			throw new IncompatibleComparatorException();
+		} else if (!i.isEmpty()) {
+			union(i.hasInfimum() ? i.infimum() : Long.MIN_VALUE, i.hasSupremum() ? i.supremum() : Long.MAX_VALUE,
+					i.config);
+		}
+	}
+	
+	@Override
+	public void add(final Long e) {
+		add(e.longValue());
+	}
+	
+	@Override
+	public void remove(final Interval<Long> i) {
+		if (i.comparator() != null) {
+			throw new IncompatibleComparatorException();
+		} else if (!i.isEmpty()) {
+			remove(i.hasInfimum() ? i.infimum() : Long.MIN_VALUE, i.hasSupremum() ? i.supremum() : Long.MAX_VALUE,
+					i.config);
+		}
+	}
+	
+	@Override
+	public void remove(final Long e) {
+		remove(e.longValue());
+	}
+	
+	@Override
+	public void clear() {
+		size = 0;
+	}
+	
+	private class IndexSpliterator implements Spliterator<Interval<Long>> {
+		private int next;
+		private final int end;
+		
+		public IndexSpliterator(final int next, final int end) {
+			this.next = next;
+			this.end = end;
+		}
+		
+		@Override
+		public boolean tryAdvance(final Consumer<? super Interval<Long>> action) {
+			if (next >= end) {
+				return false;
+			}
+			action.accept(interval(next++));
+			return true;
+		}
+		
+		@Override
+		public Spliterator<Interval<Long>> trySplit() {
+			final int middle = (next + end) >>> 1;
+			if (middle <= next) {
+				return null;
+			}
+			final Spliterator<Interval<Long>> prefix = new IndexSpliterator(next, middle);
+			next = middle;
+			return prefix;
+		}
+		
+		@Override
+		public long estimateSize() {
+			return end - next;
+		}
+		
+		@Override
+		public int characteristics() {
+			return ORDERED | SORTED | DISTINCT | NONNULL | SIZED | SUBSIZED;
+		}
+		
+		@Override
+		public Comparator<? super Interval<Long>> getComparator() {
+			return Interval::compareInfima;
+		}
+	}
+}
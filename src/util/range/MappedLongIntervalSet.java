@@ -0,0 +1,405 @@
+package util.range;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A read-only set of pairwise separated Intervals of longs, that is queried
+ * in place in a memory mapped file. The file holds a header of the magic
+ * number, the version and the number n of Intervals, followed by the 2n
+ * bounds of the Intervals in ascending order, stored as in
+ * {@link LongIntervalSet}, and their n configurations. Opening maps the file
+ * without reading it, so no object per Interval is created and the pages are
+ * loaded on demand and shared by all processes mapping the same file.
+ * Lookups are binary searches over the mapped bounds. A MappedByteBuffer is
+ * indexed by int, so the file is mapped in segments of 2^30 bytes.
+ */
+public class MappedLongIntervalSet implements Range<Long> {
+	private static final int MAGIC = 0x4C495331;
+	private static final int VERSION = 1;
+	private static final int HEADER = 16;
+	private static final int SEGMENT_SHIFT = 30;
+	private static final int LONG_SHIFT = SEGMENT_SHIFT - 3;
+	private static final int BUFFER_SIZE = 1 << 16;
+	
+	private final LongBuffer[] bounds;
+	private final ByteBuffer[] configs;
+	private final long size;
+	
+	private MappedLongIntervalSet(final LongBuffer[] bounds, final ByteBuffer[] configs, final long size) {
+		this.bounds = bounds;
+		this.configs = configs;
+		this.size = size;
+	}
+	
+	/**
+	 * Maps file, which must have been written by {@link #write(Range, Path)}.
+	 * The file must not change while it is mapped.
+	 * 
+	 * @throws IOException
+	 *             If file cannot be read or is no interval set.
+	 */
+	public static MappedLongIntervalSet open(final Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER) {
+				throw new IOException("Not an interval set: " + file);
+			}
+			final ByteBuffer header = channel.map(MapMode.READ_ONLY, 0, HEADER);
+			final long size = header.getLong(8);
+			if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || size < 0
+					|| channel.size() != HEADER + 17 * size) {
+				throw new IOException("Not an interval set: " + file);
+			}
+			final ByteBuffer[] b = map(channel, HEADER, 16 * size);
+			final LongBuffer[] bounds = new LongBuffer[b.length];
+			for (int k = 0; k < b.length; k++) {
+				bounds[k] = b[k].asLongBuffer();
+			}
+			return new MappedLongIntervalSet(bounds, map(channel, HEADER + 16 * size, size), size);
+		}
+	}
+	
+	private static ByteBuffer[] map(final FileChannel channel, final long position, final long length)
+			throws IOException {
+		final ByteBuffer[] segments = new ByteBuffer[(int) ((length + (1L << SEGMENT_SHIFT) - 1) >>> SEGMENT_SHIFT)];
+		for (int k = 0; k < segments.length; k++) {
+			final long offset = (long) k << SEGMENT_SHIFT;
+			segments[k] = channel.map(MapMode.READ_ONLY, position + offset, Math.min(length - offset,
+					1L << SEGMENT_SHIFT));
+		}
+		return segments;
+	}
+	
+	/**
+	 * Returns the Intervals of r in ascending order, as iterated by
+	 * {@link Ranges#intervals(Range)}. A {@link ConcurrentIntervalSet} is
+	 * iterated through one snapshot, so both passes of
+	 * {@link #write(Range, Path)} see the same version.
+	 */
+	private static Iterable<Interval<Long>> intervals(final Range<Long> r) {
+		final Range<Long> source = r instanceof ConcurrentIntervalSet ? ((ConcurrentIntervalSet<Long>) r).snapshot()
+				: r;
+		return () -> Ranges.intervals(source);
+	}
+	
+	/**
+	 * Writes the Intervals of r to file, replacing its content, in two
+	 * streaming passes: one counting the Intervals and one writing bounds and
+	 * configurations to their regions. r must not change meanwhile and must
+	 * not be mapped from file.
+	 * 
+	 * @throws ConcurrentModificationException
+	 *             If the passes found a different number of Intervals.
+	 */
+	public static void write(final Range<Long> r, final Path file) throws IOException {
+		final Iterable<Interval<Long>> intervals = intervals(r);
+		long size = 0;
+		for (final Interval<Long> i : intervals) {
+			if (i.comparator() != null) {
+				throw new IncompatibleComparatorException();
+			}
+			size++;
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			final ByteBuffer header = ByteBuffer.allocate(HEADER);
+			header.putInt(MAGIC).putInt(VERSION).putLong(size).flip();
+			long boundsPosition = write(channel, header, 0);
+			long configsPosition = HEADER + 16 * size;
+			final ByteBuffer b = ByteBuffer.allocate(BUFFER_SIZE);
+			final ByteBuffer c = ByteBuffer.allocate(BUFFER_SIZE / 16);
+			long written = 0;
+			for (final Interval<Long> i : intervals) {
+				if (++written > size) {
+					throw new ConcurrentModificationException();
+				}
+				b.putLong(i.hasInfimum() ? i.infimum() : Long.MIN_VALUE);
+				b.putLong(i.hasSupremum() ? i.supremum() : Long.MAX_VALUE);
+				c.put((byte) i.config);
+				if (!c.hasRemaining()) {
+					b.flip();
+					boundsPosition = write(channel, b, boundsPosition);
+					c.flip();
+					configsPosition = write(channel, c, configsPosition);
+				}
+			}
+			if (written < size) {
+				throw new ConcurrentModificationException();
+			}
+			b.flip();
+			write(channel, b, boundsPosition);
+			c.flip();
+			write(channel, c, configsPosition);
+		}
+	}
+	
+	/**
+	 * Writes buffer at position, clears it and returns the position after it.
+	 */
+	private static long write(final FileChannel channel, final ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+		buffer.clear();
+		return position;
+	}
+	
+	private long lower(final long k) {
+		return bounds[(int) (k >>> (LONG_SHIFT - 1))].get((int) ((2 * k) & ((1 << LONG_SHIFT) - 1)));
+	}
+	
+	private long upper(final long k) {
+		return bounds[(int) (k >>> (LONG_SHIFT - 1))].get((int) ((2 * k + 1) & ((1 << LONG_SHIFT) - 1)));
+	}
+	
+	private int config(final long k) {
+		return configs[(int) (k >>> SEGMENT_SHIFT)].get((int) (k & ((1 << SEGMENT_SHIFT) - 1)));
+	}
+	
+	/**
+	 * Returns the index of the first Interval whose supremum lies above the cut
+	 * (v, s), or size if there is none.
+	 */
+	private long firstAbove(final long v, final int s) {
+		long lo = 0;
+		long hi = size;
+		while (lo < hi) {
+			final long mid = (lo + hi) >>> 1;
+			if (LongIntervalSet.compare(upper(mid), LongIntervalSet.upperSide(config(mid)), v, s) > 0) {
+				hi = mid;
+			} else {
+				lo = mid + 1;
+			}
+		}
+		return lo;
+	}
+	
+	/**
+	 * Returns the index of the last Interval whose infimum lies below the cut
+	 * (v, s), or -1 if there is none.
+	 */
+	private long lastBelow(final long v, final int s) {
+		long lo = 0;
+		long hi = size;
+		while (lo < hi) {
+			final long mid = (lo + hi) >>> 1;
+			if (LongIntervalSet.compare(lower(mid), LongIntervalSet.lowerSide(config(mid)), v, s) < 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo - 1;
+	}
+	
+	private Interval<Long> interval(final long k) {
+		return new Interval<Long>(lower(k), upper(k), config(k));
+	}
+	
+	public long size() {
+		return size;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	@Override
+	public boolean isSet() {
+		for (long k = 0; k < size; k++) {
+			if (config(k) != (Interval.INFIMUM_EX_INCLUDED | Interval.SUPREMUM_EX_INCLUDED) || lower(k) != upper(k)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public Set<Long> toSet() {
+		if (!this.isSet()) {
+			throw new UnsupportedOperationException("Is no Set.");
+		}
+		final Set<Long> set = new HashSet<Long>();
+		for (long k = 0; k < size; k++) {
+			set.add(lower(k));
+		}
+		return set;
+	}
+	
+	public boolean contains(final long e) {
+		final long k = lastBelow(e, 0);
+		return k >= 0 && LongIntervalSet.compare(upper(k), LongIntervalSet.upperSide(config(k)), e, 0) > 0;
+	}
+	
+	@Override
+	public boolean contains(final Long e) {
+		return contains(e.longValue());
+	}
+	
+	@Override
+	public boolean intersects(final Interval<Long> i) {
+		if (i.comparator() != null) {
+			throw new IncompatibleComparatorException();
+		}
+		return !i.isEmpty()
+				&& intersects(i.hasInfimum() ? i.infimum() : Long.MIN_VALUE, i.hasSupremum() ? i.supremum()
+						: Long.MAX_VALUE, i.config);
+	}
+	
+	/**
+	 * Whether the Interval described by infimum, supremum and the
+	 * {@link Interval} flags in config shares an element with this set.
+	 * Missing bounds are ignored.
+	 */
+	public boolean intersects(final long infimum, final long supremum, final int config) {
+		LongIntervalSet.checkConfig(config);
+		if (config == Interval.EMPTY) {
+			return false;
+		}
+		final int ls = LongIntervalSet.lowerSide(config);
+		final int us = LongIntervalSet.upperSide(config);
+		final long lv = ls == -2 ? Long.MIN_VALUE : infimum;
+		final long uv = us == 2 ? Long.MAX_VALUE : supremum;
+		if (LongIntervalSet.compare(lv, ls, uv, us) >= 0) {
+			return false;
+		}
+		final long from = firstAbove(lv, ls);
+		return from < size
+				&& LongIntervalSet.compare(lower(from), LongIntervalSet.lowerSide(config(from)), uv, us) < 0;
+	}
+	
+	@Override
+	public boolean intersects(final Range<Long> r) {
+		final Iterator<Interval<Long>> it = Ranges.intervals(r);
+		while (it.hasNext()) {
+			if (intersects(it.next())) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	public Iterator<Interval<Long>> iterateIntervals() {
+		return new Iterator<Interval<Long>>() {
+			private long next = 0;
+			
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+			
+			@Override
+			public Interval<Long> next() {
+				if (next >= size) {
+					throw new NoSuchElementException();
+				}
+				return interval(next++);
+			}
+		};
+	}
+	
+	@Override
+	public boolean hasInfimum() {
+		return size > 0 && (config(0) & Interval.INFIMUM_EXISTS) != 0;
+	}
+	
+	@Override
+	public Long infimum() {
+		if (this.hasInfimum()) {
+			return lower(0);
+		} else {
+			throw new NoSuchExtremumException("Infimum");
+		}
+	}
+	
+	@Override
+	public boolean isInfimumIncluded() {
+		if (this.hasInfimum()) {
+			return (config(0) & Interval.INFIMUM_INCLUDED) != 0;
+		} else {
+			throw new NoSuchExtremumException("Infimum");
+		}
+	}
+	
+	@Override
+	public boolean hasSupremum() {
+		return size > 0 && (config(size - 1) & Interval.SUPREMUM_EXISTS) != 0;
+	}
+	
+	@Override
+	public Long supremum() {
+		if (this.hasSupremum()) {
+			return upper(size - 1);
+		} else {
+			throw new NoSuchExtremumException("Supremum");
+		}
+	}
+	
+	@Override
+	public boolean isSupremumIncluded() {
+		if (this.hasSupremum()) {
+			return (config(size - 1) & Interval.SUPREMUM_INCLUDED) != 0;
+		} else {
+			throw new NoSuchExtremumException("Supremum");
+		}
+	}
+	
+	@Override
+	public boolean isLowerBound(final Long e) {
+		return this.hasInfimum() ? lower(0) >= e : this.isEmpty();
+	}
+	
+	@Override
+	public boolean isUpperBound(final Long e) {
+		return this.hasSupremum() ? upper(size - 1) <= e : this.isEmpty();
+	}
+	
+	@Override
+	public boolean isStrictLowerBound(final Long e) {
+		return this.hasInfimum() ? LongIntervalSet.compare(lower(0), LongIntervalSet.lowerSide(config(0)), e, 0) > 0
+				: this.isEmpty();
+	}
+	
+	@Override
+	public boolean isStrictUpperBound(final Long e) {
+		return this.hasSupremum() ? LongIntervalSet.compare(upper(size - 1), LongIntervalSet.upperSide(config(size
+				- 1)), e, 0) < 0 : this.isEmpty();
+	}
+	
+	/**
+	 * Copies the Intervals to the heap, building the tree in O(n).
+	 */
+	@Override
+	public SeparateIntervalSet<Long> toSeparateIntervalSet() {
+		final List<Interval<Long>> intervals = new ArrayList<Interval<Long>>((int) Math.min(size, Integer.MAX_VALUE));
+		for (long k = 0; k < size; k++) {
+			intervals.add(interval(k));
+		}
+		return SeparateIntervalSet.ofSeparated(null, intervals);
+	}
+	
+	@Override
+	public String toString() {
+		if (size == 0) {
+			return "O";
+		}
+		final StringBuilder sb = new StringBuilder(interval(0).toString());
+		for (long k = 1; k < size; k++) {
+			sb.append("U").append(interval(k).toString());
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,222 @@
+package util.range;
+
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * A {@link SeparateIntervalSet}, whose nodes also hold the total length of
+ * the Intervals in their subtree, measured by a {@link Metric}. The sums are
+ * kept up to date by every rebalancing step, so the measure of the whole set
+ * is known in O(1) and the measure within a window and a length weighted
+ * random point are found in O(log n). Intervals without infimum or supremum
+ * have infinite length.
+ */
+public class MeasuredIntervalSet<E> extends SeparateIntervalSet<E> {
+	/**
+	 * Measures the distance between two elements.
+	 */
+	@FunctionalInterface
+	public interface Metric<E> {
+		Metric<Double> DOUBLE = new Metric<Double>() {
+			@Override
+			public double distance(final Double lower, final Double upper) {
+				return upper - lower;
+			}
+			
+			@Override
+			public Double offset(final Double lower, final double distance) {
+				return lower + distance;
+			}
+		};
+		
+		Metric<Long> LONG = new Metric<Long>() {
+			@Override
+			public double distance(final Long lower, final Long upper) {
+				return (double) upper - (double) lower;
+			}
+		};
+		
+		Metric<Integer> INTEGER = new Metric<Integer>() {
+			@Override
+			public double distance(final Integer lower, final Integer upper) {
+				return (double) upper - (double) lower;
+			}
+		};
+		
+		/**
+		 * Returns the non-negative distance from lower to upper, which is not
+		 * below lower.
+		 */
+		double distance(E lower, E upper);
+		
+		/**
+		 * Returns the element at the given distance above lower. Only needed
+		 * for {@link MeasuredIntervalSet#sample(Random)}, which needs a
+		 * continuous metric: the discrete {@link #LONG} and {@link #INTEGER}
+		 * do not support it, as lengths do not count their elements.
+		 */
+		default E offset(final E lower, final double distance) {
+			throw new UnsupportedOperationException();
+		}
+	}
+	
+	private final Metric<E> metric;
+	
+	public MeasuredIntervalSet(final Metric<E> metric) {
+		this(null, metric);
+	}
+	
+	public MeasuredIntervalSet(final Comparator<? super E> comparator, final Metric<E> metric) {
+		super(comparator);
+		this.metric = metric;
+	}
+	
+	public static MeasuredIntervalSet<Double> ofDoubles() {
+		return new MeasuredIntervalSet<Double>(Metric.DOUBLE);
+	}
+	
+	public static MeasuredIntervalSet<Long> ofLongs() {
+		return new MeasuredIntervalSet<Long>(Metric.LONG);
+	}
+	
+	public static MeasuredIntervalSet<Integer> ofIntegers() {
+		return new MeasuredIntervalSet<Integer>(Metric.INTEGER);
+	}
+	
+	@Override
+	protected TreeNode<E> newNode(final Interval<E> i) {
+		return new MeasureNode<E>(i, length(i));
+	}
+	
+	private double length(final Interval<E> i) {
+		if (!i.hasInfimum() || !i.hasSupremum()) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return metric.distance(i.infimum(), i.supremum());
+	}
+	
+	private static double measure(final TreeNode<?> node) {
+		return node == null ? 0 : ((MeasureNode<?>) node).measure;
+	}
+	
+	/**
+	 * Returns the total length of the Intervals in O(1).
+	 */
+	public double measure() {
+		return measure(root);
+	}
+	
+	/**
+	 * Returns the total length of the Intervals clipped to window in
+	 * O(log n). Only the first and the last Interval intersecting window need
+	 * to be clipped, all between them are covered by subtree sums.
+	 */
+	public double measure(final Interval<E> window) {
+		checkComparator(window);
+		if (window.isEmpty()) {
+			return 0;
+		}
+		TreeNode<E> node = root;
+		while (node != null) {
+			if (isBelow(node.value, window, false)) {
+				node = node.right;
+			} else if (isAbove(node.value, window, false)) {
+				node = node.left;
+			} else {
+				break;
+			}
+		}
+		if (node == null) {
+			return 0;
+		}
+		double measure = length(clip(node.value, window));
+		TreeNode<E> n = node.left;
+		while (n != null) {
+			if (isBelow(n.value, window, false)) {
+				n = n.right;
+			} else {
+				measure += length(clip(n.value, window)) + measure(n.right);
+				n = n.left;
+			}
+		}
+		n = node.right;
+		while (n != null) {
+			if (isAbove(n.value, window, false)) {
+				n = n.left;
+			} else {
+				measure += length(clip(n.value, window)) + measure(n.left);
+				n = n.right;
+			}
+		}
+		return measure;
+	}
+	
+	/**
+	 * Returns a random element, every Interval being chosen with a
+	 * probability proportional to its length and the element uniformly within
+	 * it, so points are never drawn. Requires a continuous metric, see
+	 * {@link Metric#offset(Object, double)}.
+	 * 
+	 * @throws NoSuchElementException
+	 *             If the measure is zero.
+	 * @throws IllegalStateException
+	 *             If the measure is infinite.
+	 * @throws UnsupportedOperationException
+	 *             If the metric cannot offset elements.
+	 */
+	public E sample(final Random random) {
+		final double measure = measure();
+		if (measure == 0) {
+			throw new NoSuchElementException();
+		} else if (Double.isInfinite(measure)) {
+			throw new IllegalStateException("Infinite measure.");
+		}
+		while (true) {
+			// An excluded bound is drawn with probability zero, so redraw.
+			final E e = draw(random, measure);
+			if (contains(e)) {
+				return e;
+			}
+		}
+	}
+	
+	private E draw(final Random random, final double measure) {
+		double u = random.nextDouble() * measure;
+		MeasureNode<E> node = (MeasureNode<E>) root;
+		while (true) {
+			final double left = measure(node.left);
+			if (u < left) {
+				node = (MeasureNode<E>) node.left;
+				continue;
+			}
+			u -= left;
+			if (u < node.length || measure(node.right) == 0) {
+				// Rounding may leave u slightly beyond the last Interval.
+				return metric.offset(node.value.infimum(), Math.min(u, node.length));
+			}
+			u -= node.length;
+			node = (MeasureNode<E>) node.right;
+		}
+	}
+	
+	private static class MeasureNode<E> extends TreeNode<E> {
+		private final double length;
+		/**
+		 * The total length of the Intervals in this subtree.
+		 */
+		private double measure;
+		
+		public MeasureNode(final Interval<E> value, final double length) {
+			super(value);
+			this.length = length;
+			this.measure = length;
+		}
+		
+		@Override
+		public void update() {
+			super.update();
+			measure = measure(left) + length + measure(right);
+		}
+	}
+}
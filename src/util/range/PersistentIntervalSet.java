@@ -0,0 +1,118 @@
+package util.range;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An immutable set of pairwise separated {@link Interval}s. Every change
+ * returns a new version, which copies only the O(log n) nodes on the changed
+ * paths and shares all other subtrees with this one. A version therefore is a
+ * consistent snapshot, that can be read and iterated by any number of threads
+ * while a writer derives new versions from it, as long as the versions are
+ * published safely, e.g. through a volatile field.
+ */
+public class PersistentIntervalSet<E> extends AbstractSeparateIntervalSet<E> {
+	private PersistentIntervalSet(final Comparator<? super E> comparator, final TreeNode<E> root) {
+		super(comparator, root);
+	}
+	
+	public static <E> PersistentIntervalSet<E> empty() {
+		return new PersistentIntervalSet<E>(null, null);
+	}
+	
+	public static <E> PersistentIntervalSet<E> empty(final Comparator<? super E> comparator) {
+		return new PersistentIntervalSet<E>(comparator, null);
+	}
+	
+	/**
+	 * Creates a version holding the Intervals of set in O(n).
+	 */
+	public static <E> PersistentIntervalSet<E> of(final SeparateIntervalSet<E> set) {
+		return PersistentIntervalSet.<E> empty(set.comparator()).union(set);
+	}
+	
+	@Override
+	protected TreeNode<E> mutable(final TreeNode<E> node) {
+		return new TreeNode<E>(node);
+	}
+	
+	private PersistentIntervalSet<E> with(final TreeNode<E> root) {
+		return root == this.root ? this : new PersistentIntervalSet<E>(comparator, root);
+	}
+	
+	private PersistentIntervalSet<E> with(final List<Interval<E>> intervals) {
+		return new PersistentIntervalSet<E>(comparator, build(intervals, 0, intervals.size()));
+	}
+	
+	public PersistentIntervalSet<E> union(final Interval<E> i) {
+		return union(i, null);
+	}
+	
+	/**
+	 * Returns the union with i and records the replaced Intervals in changes,
+	 * unless it is null.
+	 */
+	PersistentIntervalSet<E> union(final Interval<E> i, final Changes<E> changes) {
+		return i.isEmpty() ? this : with(united(i, changes));
+	}
+	
+	public PersistentIntervalSet<E> add(final E e) {
+		return add(e, null);
+	}
+	
+	PersistentIntervalSet<E> add(final E e, final Changes<E> changes) {
+		return contains(e) ? this : with(united(point(e), changes));
+	}
+	
+	public PersistentIntervalSet<E> remove(final Interval<E> i) {
+		return remove(i, null);
+	}
+	
+	PersistentIntervalSet<E> remove(final Interval<E> i, final Changes<E> changes) {
+		return root == null || i.isEmpty() ? this : with(removed(i, changes));
+	}
+	
+	public PersistentIntervalSet<E> remove(final E e) {
+		return remove(e, null);
+	}
+	
+	PersistentIntervalSet<E> remove(final E e, final Changes<E> changes) {
+		return contains(e) ? with(removed(point(e), changes)) : this;
+	}
+	
+	/**
+	 * Returns the union with r in O(n + m). The result shares no nodes with
+	 * this version.
+	 */
+	public PersistentIntervalSet<E> union(final Range<E> r) {
+		return with(unionOf(iterateIntervals(), operand(r)));
+	}
+	
+	public PersistentIntervalSet<E> union(final Set<E> s) {
+		return union(SeparateIntervalSet.fromPoints(comparator, s));
+	}
+	
+	/**
+	 * Returns the difference with r in O(n + m). The result shares no nodes
+	 * with this version.
+	 */
+	public PersistentIntervalSet<E> remove(final Range<E> r) {
+		return with(differenceOf(iterateIntervals(), operand(r)));
+	}
+	
+	public PersistentIntervalSet<E> remove(final Set<E> s) {
+		return remove(SeparateIntervalSet.fromPoints(comparator, s));
+	}
+	
+	public PersistentIntervalSet<E> clear() {
+		return with((TreeNode<E>) null);
+	}
+	
+	@Override
+	public SeparateIntervalSet<E> toSeparateIntervalSet() {
+		final SeparateIntervalSet<E> set = new SeparateIntervalSet<E>(comparator);
+		set.union(this);
+		return set;
+	}
+}
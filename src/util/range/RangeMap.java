@@ -0,0 +1,382 @@
+package util.range;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * A map from pairwise separated {@link Interval}s to values, held in the same
+ * AVL tree as {@link SeparateIntervalSet}. Putting a range overwrites the
+ * parts of existing ranges it covers, and connected ranges with equal values
+ * are coalesced, so the tree never holds more nodes than necessary. As a
+ * {@link Range} the map is the union of its keys.
+ */
+public class RangeMap<E, V> extends AbstractSeparateIntervalSet<E> {
+	public RangeMap() {
+		this(null);
+	}
+	
+	public RangeMap(final Comparator<? super E> comparator) {
+		super(comparator, null);
+	}
+	
+	@Override
+	protected TreeNode<E> mutable(final TreeNode<E> node) {
+		return node;
+	}
+	
+	/**
+	 * Returns the value of the range containing e, or null if there is none.
+	 */
+	public V get(final E e) {
+		final MapNode<E, V> node = find(e);
+		return node == null ? null : node.mapped;
+	}
+	
+	/**
+	 * Returns the range containing e with its value, or null if there is none.
+	 */
+	public Map.Entry<Interval<E>, V> getEntry(final E e) {
+		return find(e);
+	}
+	
+	@SuppressWarnings("unchecked")
+	private MapNode<E, V> find(final E e) {
+		TreeNode<E> node = root;
+		while (node != null) {
+			if (node.value.contains(e)) {
+				return (MapNode<E, V>) node;
+			} else if (node.value.isStrictLowerBound(e)) {
+				node = node.left;
+			} else {
+				node = node.right;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Maps all elements of i to value, overwriting the parts of existing
+	 * ranges within i.
+	 */
+	@SuppressWarnings("unchecked")
+	public void put(final Interval<E> i, final V value) {
+		if (i.isEmpty()) {
+			return;
+		}
+		checkComparator(i);
+		Interval<E> merged = i;
+		final MapNode<E, V> lowest = connected(i, false);
+		if (lowest != null && Objects.equals(lowest.mapped, value) && lowest.value.compareInfima(i) < 0) {
+			merged = span(lowest.value, merged);
+		}
+		final MapNode<E, V> highest = connected(i, true);
+		if (highest != null && Objects.equals(highest.mapped, value) && highest.value.compareSuprema(i) > 0) {
+			merged = span(merged, highest.value);
+		}
+		final Split<E> split = new Split<E>();
+		split(root, merged, false, false, split);
+		TreeNode<E> below = split.left;
+		split(split.right, merged, false, true, split);
+		TreeNode<E> above = split.right;
+		final MapNode<E, V> first = (MapNode<E, V>) leftmost(split.left);
+		if (first != null && first.value.compareInfima(merged) < 0) {
+			below = join(below, new MapNode<E, V>(nonEmptyUpperRemove(merged, first.value), first.mapped), null);
+		}
+		final MapNode<E, V> last = (MapNode<E, V>) rightmost(split.left);
+		if (last != null && last.value.compareSuprema(merged) > 0) {
+			above = join(null, new MapNode<E, V>(nonEmptyLowerRemove(merged, last.value), last.mapped), above);
+		}
+		root = join(below, new MapNode<E, V>(merged, value), above);
+	}
+	
+	/**
+	 * Unmaps all elements of i.
+	 */
+	@SuppressWarnings("unchecked")
+	public void remove(final Interval<E> i) {
+		if (root == null || i.isEmpty()) {
+			return;
+		}
+		checkComparator(i);
+		final Split<E> split = new Split<E>();
+		split(root, i, false, false, split);
+		TreeNode<E> below = split.left;
+		split(split.right, i, false, true, split);
+		TreeNode<E> above = split.right;
+		final MapNode<E, V> first = (MapNode<E, V>) leftmost(split.left);
+		if (first != null && first.value.compareInfima(i) < 0) {
+			below = join(below, new MapNode<E, V>(nonEmptyUpperRemove(i, first.value), first.mapped), null);
+		}
+		final MapNode<E, V> last = (MapNode<E, V>) rightmost(split.left);
+		if (last != null && last.value.compareSuprema(i) > 0) {
+			above = join(null, new MapNode<E, V>(nonEmptyLowerRemove(i, last.value), last.mapped), above);
+		}
+		root = join(below, above);
+	}
+	
+	public void clear() {
+		root = null;
+	}
+	
+	/**
+	 * Returns the lowest, or if upper the highest, range connected to i.
+	 */
+	@SuppressWarnings("unchecked")
+	private MapNode<E, V> connected(final Interval<E> i, final boolean upper) {
+		TreeNode<E> found = null;
+		TreeNode<E> node = root;
+		while (node != null) {
+			if (upper ? isAbove(node.value, i, true) : isBelow(node.value, i, true)) {
+				node = upper ? node.left : node.right;
+			} else {
+				if (!(upper ? isBelow(node.value, i, true) : isAbove(node.value, i, true))) {
+					found = node;
+				}
+				node = upper ? node.right : node.left;
+			}
+		}
+		return (MapNode<E, V>) found;
+	}
+	
+	private static <E> TreeNode<E> leftmost(TreeNode<E> node) {
+		while (node != null && node.left != null) {
+			node = node.left;
+		}
+		return node;
+	}
+	
+	private static <E> TreeNode<E> rightmost(TreeNode<E> node) {
+		while (node != null && node.right != null) {
+			node = node.right;
+		}
+		return node;
+	}
+	
+	/**
+	 * Iterates the ranges with their values in ascending order.
+	 */
+	public Iterator<Map.Entry<Interval<E>, V>> iterateEntries() {
+		return new EntryIterator();
+	}
+	
+	/**
+	 * Iterates the union of the keys, so connected ranges with different
+	 * values are returned as one Interval.
+	 */
+	@Override
+	public Iterator<Interval<E>> iterateIntervals() {
+		final Iterator<Map.Entry<Interval<E>, V>> entries = iterateEntries();
+		return coalesce(false, new Iterator<Interval<E>>() {
+			@Override
+			public boolean hasNext() {
+				return entries.hasNext();
+			}
+			
+			@Override
+			public Interval<E> next() {
+				return entries.next().getKey();
+			}
+		});
+	}
+	
+	/**
+	 * Iterates the union of the keys within window, as
+	 * {@link #iterateIntervals()} does.
+	 */
+	@Override
+	public Iterator<Interval<E>> iterateIntervals(final Interval<E> window) {
+		return coalesce(false, super.iterateIntervals(window));
+	}
+	
+	/**
+	 * Iterates the union of the keys in descending order.
+	 */
+	@Override
+	public Iterator<Interval<E>> iterateIntervalsDescending() {
+		return coalesce(true, super.iterateIntervalsDescending());
+	}
+	
+	/**
+	 * Coalesces connected keys, which come in ascending or, if descending, in
+	 * descending order.
+	 */
+	private Iterator<Interval<E>> coalesce(final boolean descending, final Iterator<Interval<E>> keys) {
+		return new Iterator<Interval<E>>() {
+			private Interval<E> next = keys.hasNext() ? keys.next() : null;
+			
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+			
+			@Override
+			public Interval<E> next() {
+				if (next == null) {
+					throw new NoSuchElementException();
+				}
+				Interval<E> i = next;
+				next = null;
+				while (keys.hasNext()) {
+					final Interval<E> n = keys.next();
+					if (descending ? isBelow(n, i, true) : isAbove(n, i, true)) {
+						next = n;
+						break;
+					}
+					i = descending ? span(n, i) : span(i, n);
+				}
+				return i;
+			}
+		};
+	}
+	
+	/**
+	 * Returns a sorted {@link Spliterator} over the union of the keys, as
+	 * {@link #iterateIntervals()} does. Connected keys are only coalesced
+	 * in order, so it does not split, and its size is estimated by the number
+	 * of keys.
+	 */
+	@Override
+	public Spliterator<Interval<E>> spliterator() {
+		final Iterator<Interval<E>> it = iterateIntervals();
+		return new Spliterators.AbstractSpliterator<Interval<E>>(size(), Spliterator.ORDERED | Spliterator.SORTED
+				| Spliterator.DISTINCT | Spliterator.NONNULL) {
+			@Override
+			public boolean tryAdvance(final Consumer<? super Interval<E>> action) {
+				if (!it.hasNext()) {
+					return false;
+				}
+				action.accept(it.next());
+				return true;
+			}
+			
+			@Override
+			public Spliterator<Interval<E>> trySplit() {
+				return null;
+			}
+			
+			@Override
+			public Comparator<? super Interval<E>> getComparator() {
+				return Interval::compareInfima;
+			}
+		};
+	}
+	
+	@Override
+	public SeparateIntervalSet<E> toSeparateIntervalSet() {
+		final List<Interval<E>> intervals = new ArrayList<Interval<E>>();
+		final Iterator<Interval<E>> it = iterateIntervals();
+		while (it.hasNext()) {
+			intervals.add(it.next());
+		}
+		return SeparateIntervalSet.of(comparator, intervals);
+	}
+	
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder("{");
+		final Iterator<Map.Entry<Interval<E>, V>> it = iterateEntries();
+		while (it.hasNext()) {
+			sb.append(it.next());
+			if (it.hasNext()) {
+				sb.append(", ");
+			}
+		}
+		return sb.append("}").toString();
+	}
+	
+	private static class MapNode<E, V> extends TreeNode<E> implements Map.Entry<Interval<E>, V> {
+		protected final V mapped;
+		
+		public MapNode(final Interval<E> value, final V mapped) {
+			super(value);
+			this.mapped = mapped;
+		}
+		
+		@Override
+		public Interval<E> getKey() {
+			return value;
+		}
+		
+		@Override
+		public V getValue() {
+			return mapped;
+		}
+		
+		/**
+		 * Not supported, since equal values of connected ranges must be
+		 * coalesced. Use {@link RangeMap#put(Interval, Object)}.
+		 */
+		@Override
+		public V setValue(final V value) {
+			throw new UnsupportedOperationException();
+		}
+		
+		/**
+		 * Compares keys and values as specified by {@link Map.Entry#equals(Object)},
+		 * keys by their bounds as in {@link Interval#equals(Object)}.
+		 */
+		@Override
+		public boolean equals(final Object o) {
+			if (!(o instanceof Map.Entry)) {
+				return false;
+			}
+			final Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+			return Objects.equals(value, e.getKey()) && Objects.equals(mapped, e.getValue());
+		}
+		
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(value) ^ Objects.hashCode(mapped);
+		}
+		
+		@Override
+		public String toString() {
+			return value + "=" + mapped;
+		}
+	}
+	
+	private class EntryIterator implements Iterator<Map.Entry<Interval<E>, V>> {
+		/**
+		 * path holds the MapNodes still to be returned, whose left subtrees
+		 * have already been visited. The next node is on top.
+		 */
+		private final ArrayDeque<TreeNode<E>> path;
+		
+		public EntryIterator() {
+			path = new ArrayDeque<TreeNode<E>>();
+			descend(root);
+		}
+		
+		private void descend(TreeNode<E> node) {
+			while (node != null) {
+				path.push(node);
+				node = node.left;
+			}
+		}
+		
+		@Override
+		public boolean hasNext() {
+			return !path.isEmpty();
+		}
+		
+		@Override
+		@SuppressWarnings("unchecked")
+		public Map.Entry<Interval<E>, V> next() {
+			if (path.isEmpty()) {
+				throw new NoSuchElementException();
+			}
+			final TreeNode<E> node = path.pop();
+			descend(node.right);
+			return (MapNode<E, V>) node;
+		}
+	}
+}
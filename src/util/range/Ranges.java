@@ -0,0 +1,630 @@
+package util.range;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Lazy set algebra over {@link Range}s. An {@link Expression} holds nothing
+ * but its operands, so it reflects all later changes of them. Its Intervals
+ * are produced by one streaming sweep, that merges the sorted Intervals of
+ * all operands by their lower bounds, so no intermediate set is built. Trees
+ * of this package and other expressions are streamed within the window a
+ * query needs, the other sets of this package from their first Interval;
+ * only a foreign Range is converted by {@link Range#toSeparateIntervalSet()}
+ * whenever it is swept. The upper extrema are found by a descending sweep,
+ * that stops after the highest Interval.
+ */
+public final class Ranges {
+	private Ranges() {
+	}
+	
+	/**
+	 * Returns all elements not contained in r.
+	 */
+	public static <E> Expression<E> complement(final Range<E> r) {
+		return new Complement<E>(r);
+	}
+	
+	/**
+	 * Returns all elements contained in any of the operands.
+	 */
+	@SafeVarargs
+	public static <E> Expression<E> union(final Range<E> first, final Range<E>... more) {
+		final List<Range<E>> operands = new ArrayList<Range<E>>(more.length + 1);
+		operands.add(first);
+		for (final Range<E> r : more) {
+			operands.add(r);
+		}
+		return new Union<E>(operands);
+	}
+	
+	/**
+	 * Returns all elements contained in every operand, which is the complement
+	 * of the union of their complements.
+	 */
+	@SafeVarargs
+	public static <E> Expression<E> intersection(final Range<E> first, final Range<E>... more) {
+		final List<Range<E>> operands = new ArrayList<Range<E>>(more.length + 1);
+		operands.add(complement(first));
+		for (final Range<E> r : more) {
+			operands.add(complement(r));
+		}
+		return complement(new Union<E>(operands));
+	}
+	
+	/**
+	 * Returns all elements contained in a but not in b.
+	 */
+	public static <E> Expression<E> difference(final Range<E> a, final Range<E> b) {
+		return intersection(a, complement(b));
+	}
+	
+	/**
+	 * Returns the comparator of r. The primitive sets use natural order. Only
+	 * a Range of another kind is converted to find its comparator.
+	 */
+	static <E> Comparator<? super E> comparatorOf(final Range<E> r) {
+		if (r instanceof Expression) {
+			return ((Expression<E>) r).comparator();
+		} else if (r instanceof AbstractSeparateIntervalSet) {
+			return ((AbstractSeparateIntervalSet<E>) r).comparator();
+		} else if (r instanceof Interval) {
+			return ((Interval<E>) r).comparator();
+		} else if (r instanceof ConcurrentIntervalSet) {
+			return ((ConcurrentIntervalSet<E>) r).comparator();
+		} else if (r instanceof FrozenIntervalSet) {
+			return ((FrozenIntervalSet<E>) r).comparator();
+		} else if (r instanceof InlineIntervalSet) {
+			return ((InlineIntervalSet<E>) r).comparator();
+		} else if (r instanceof EncodedIntervalSet) {
+			return ((EncodedIntervalSet<E>) r).comparator();
+		} else if (r instanceof InstrumentedRange) {
+			return comparatorOf(((InstrumentedRange<E>) r).unwrap());
+		} else if (r instanceof LongIntervalSet || r instanceof MappedLongIntervalSet
+				|| r instanceof RoaringIntegerSet) {
+			return null;
+		}
+		return r.toSeparateIntervalSet().comparator();
+	}
+	
+	/**
+	 * Iterates the Intervals of r in ascending order. Every Range of this
+	 * package is iterated directly, a {@link ConcurrentIntervalSet} through
+	 * one snapshot. Only a Range of another kind is converted by
+	 * {@link Range#toSeparateIntervalSet()}.
+	 */
+	@SuppressWarnings("unchecked")
+	static <E> Iterator<Interval<E>> intervals(final Range<E> r) {
+		if (r instanceof Expression) {
+			return ((Expression<E>) r).iterateIntervals();
+		} else if (r instanceof AbstractSeparateIntervalSet) {
+			return ((AbstractSeparateIntervalSet<E>) r).iterateIntervals();
+		} else if (r instanceof Interval) {
+			return r.isEmpty() ? Collections.<Interval<E>> emptyIterator() : Collections.singletonList(
+					(Interval<E>) r).iterator();
+		} else if (r instanceof ConcurrentIntervalSet) {
+			return ((ConcurrentIntervalSet<E>) r).iterateIntervals();
+		} else if (r instanceof FrozenIntervalSet) {
+			return ((FrozenIntervalSet<E>) r).iterateIntervals();
+		} else if (r instanceof InlineIntervalSet) {
+			return ((InlineIntervalSet<E>) r).iterateIntervals();
+		} else if (r instanceof EncodedIntervalSet) {
+			return ((EncodedIntervalSet<E>) r).iterateIntervals();
+		} else if (r instanceof InstrumentedRange) {
+			return intervals(((InstrumentedRange<E>) r).unwrap());
+		} else if (r instanceof LongIntervalSet) {
+			return (Iterator<Interval<E>>) (Iterator<?>) ((LongIntervalSet) r).iterateIntervals();
+		} else if (r instanceof MappedLongIntervalSet) {
+			return (Iterator<Interval<E>>) (Iterator<?>) ((MappedLongIntervalSet) r).iterateIntervals();
+		} else if (r instanceof RoaringIntegerSet) {
+			return (Iterator<Interval<E>>) (Iterator<?>) ((RoaringIntegerSet) r).iterateIntervals();
+		}
+		return r.toSeparateIntervalSet().iterateIntervals();
+	}
+	
+	/**
+	 * Iterates the parts of the Intervals of r within the non-empty window in
+	 * ascending order. Trees and expressions descend to the window directly,
+	 * all other Ranges are iterated from their first Interval.
+	 */
+	private static <E> Iterator<Interval<E>> intervals(final Range<E> r, final Interval<E> window) {
+		if (r instanceof Expression) {
+			return ((Expression<E>) r).iterateIntervals(window);
+		} else if (r instanceof AbstractSeparateIntervalSet) {
+			return ((AbstractSeparateIntervalSet<E>) r).iterateIntervals(window);
+		} else if (r instanceof ConcurrentIntervalSet) {
+			return ((ConcurrentIntervalSet<E>) r).snapshot().iterateIntervals(window);
+		}
+		return new WindowIterator<E>(intervals(r), window);
+	}
+	
+	/**
+	 * Iterates the Intervals of r in descending order. A Range, that can only
+	 * be iterated in ascending order, is buffered first.
+	 */
+	private static <E> Iterator<Interval<E>> intervalsDescending(final Range<E> r) {
+		if (r instanceof Expression) {
+			return ((Expression<E>) r).sweepDescending();
+		} else if (r instanceof AbstractSeparateIntervalSet) {
+			return ((AbstractSeparateIntervalSet<E>) r).iterateIntervalsDescending();
+		} else if (r instanceof ConcurrentIntervalSet) {
+			return ((ConcurrentIntervalSet<E>) r).snapshot().iterateIntervalsDescending();
+		}
+		final List<Interval<E>> intervals = new ArrayList<Interval<E>>();
+		final Iterator<Interval<E>> it = intervals(r);
+		while (it.hasNext()) {
+			intervals.add(it.next());
+		}
+		Collections.reverse(intervals);
+		return intervals.iterator();
+	}
+	
+	/**
+	 * Returns the Interval from the lower bound of lower to the upper bound of
+	 * upper.
+	 */
+	private static <E> Interval<E> span(final Comparator<? super E> comparator, final Interval<E> lower,
+			final Interval<E> upper) {
+		return new Interval<E>(comparator, lower.hasInfimum() ? lower.infimum() : null, upper.hasSupremum() ? upper
+				.supremum() : null, (lower.config & Interval.INFIMUM_EX_INCLUDED)
+				| (upper.config & Interval.SUPREMUM_EX_INCLUDED));
+	}
+	
+	/**
+	 * A lazily evaluated {@link Range}. contains is answered by the operands
+	 * directly, all other queries by sweeping the Intervals, which stops as
+	 * soon as the answer is known.
+	 */
+	public abstract static class Expression<E> implements Range<E> {
+		private final Comparator<? super E> comparator;
+		
+		Expression(final Comparator<? super E> comparator) {
+			this.comparator = comparator;
+		}
+		
+		public Comparator<? super E> comparator() {
+			return comparator;
+		}
+		
+		/**
+		 * Iterates the parts of the Intervals within window in ascending order.
+		 */
+		public Iterator<Interval<E>> iterateIntervals(final Interval<E> window) {
+			if (window.comparator() != comparator) {
+				throw new IncompatibleComparatorException();
+			}
+			return window.isEmpty() ? Collections.<Interval<E>> emptyIterator() : sweep(window);
+		}
+		
+		/**
+		 * Iterates the parts of the Intervals within the non-empty window.
+		 */
+		abstract Iterator<Interval<E>> sweep(Interval<E> window);
+		
+		/**
+		 * Iterates all Intervals in descending order.
+		 */
+		abstract Iterator<Interval<E>> sweepDescending();
+		
+		public Iterator<Interval<E>> iterateIntervals() {
+			return sweep(new Interval<E>(comparator, null, null, 0));
+		}
+		
+		/**
+		 * Evaluates this expression into a new set in O(n).
+		 */
+		public SeparateIntervalSet<E> materialize() {
+			final List<Interval<E>> intervals = new ArrayList<Interval<E>>();
+			final Iterator<Interval<E>> it = iterateIntervals();
+			while (it.hasNext()) {
+				intervals.add(it.next());
+			}
+			return SeparateIntervalSet.of(comparator, intervals);
+		}
+		
+		private Interval<E> first() {
+			final Iterator<Interval<E>> it = iterateIntervals();
+			return it.hasNext() ? it.next() : null;
+		}
+		
+		private Interval<E> last() {
+			final Iterator<Interval<E>> it = sweepDescending();
+			return it.hasNext() ? it.next() : null;
+		}
+		
+		@Override
+		public boolean isEmpty() {
+			return !iterateIntervals().hasNext();
+		}
+		
+		@Override
+		public boolean isSet() {
+			final Iterator<Interval<E>> it = iterateIntervals();
+			while (it.hasNext()) {
+				if (!it.next().isSet()) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		@Override
+		public Set<E> toSet() {
+			return materialize().toSet();
+		}
+		
+		@Override
+		public boolean intersects(final Interval<E> i) {
+			return iterateIntervals(i).hasNext();
+		}
+		
+		@Override
+		public boolean intersects(final Range<E> r) {
+			return intersection(this, r).iterateIntervals().hasNext();
+		}
+		
+		@Override
+		public boolean hasInfimum() {
+			final Interval<E> first = first();
+			return first != null && first.hasInfimum();
+		}
+		
+		@Override
+		public E infimum() {
+			final Interval<E> first = first();
+			if (first != null && first.hasInfimum()) {
+				return first.infimum();
+			} else {
+				throw new NoSuchExtremumException("Infimum");
+			}
+		}
+		
+		@Override
+		public boolean isInfimumIncluded() {
+			final Interval<E> first = first();
+			if (first != null && first.hasInfimum()) {
+				return first.isInfimumIncluded();
+			} else {
+				throw new NoSuchExtremumException("Infimum");
+			}
+		}
+		
+		@Override
+		public boolean hasSupremum() {
+			final Interval<E> last = last();
+			return last != null && last.hasSupremum();
+		}
+		
+		@Override
+		public E supremum() {
+			final Interval<E> last = last();
+			if (last != null && last.hasSupremum()) {
+				return last.supremum();
+			} else {
+				throw new NoSuchExtremumException("Supremum");
+			}
+		}
+		
+		@Override
+		public boolean isSupremumIncluded() {
+			final Interval<E> last = last();
+			if (last != null && last.hasSupremum()) {
+				return last.isSupremumIncluded();
+			} else {
+				throw new NoSuchExtremumException("Supremum");
+			}
+		}
+		
+		@Override
+		public boolean isLowerBound(final E e) {
+			final Interval<E> first = first();
+			return first == null || first.isLowerBound(e);
+		}
+		
+		@Override
+		public boolean isUpperBound(final E e) {
+			final Interval<E> last = last();
+			return last == null || last.isUpperBound(e);
+		}
+		
+		@Override
+		public boolean isStrictLowerBound(final E e) {
+			final Interval<E> first = first();
+			return first == null || first.isStrictLowerBound(e);
+		}
+		
+		@Override
+		public boolean isStrictUpperBound(final E e) {
+			final Interval<E> last = last();
+			return last == null || last.isStrictUpperBound(e);
+		}
+		
+		@Override
+		public SeparateIntervalSet<E> toSeparateIntervalSet() {
+			return materialize();
+		}
+		
+		@Override
+		public String toString() {
+			return materialize().toString();
+		}
+	}
+	
+	private static class Complement<E> extends Expression<E> {
+		private final Range<E> operand;
+		
+		public Complement(final Range<E> operand) {
+			super(comparatorOf(operand));
+			this.operand = operand;
+		}
+		
+		@Override
+		public boolean contains(final E e) {
+			return !operand.contains(e);
+		}
+		
+		@Override
+		Iterator<Interval<E>> sweep(final Interval<E> window) {
+			return new GapIterator<E>(comparator(), window, intervals(operand, window), false);
+		}
+		
+		@Override
+		Iterator<Interval<E>> sweepDescending() {
+			return new GapIterator<E>(comparator(), new Interval<E>(comparator(), null, null, 0),
+					intervalsDescending(operand), true);
+		}
+	}
+	
+	/**
+	 * Iterates the gaps between the Intervals of an iterator within a window,
+	 * in the order of the iterator.
+	 */
+	private static class GapIterator<E> implements Iterator<Interval<E>> {
+		private final Comparator<? super E> comparator;
+		private final Iterator<Interval<E>> it;
+		private final boolean descending;
+		/**
+		 * The part of the window beyond the Intervals seen so far, or null if
+		 * there is none.
+		 */
+		private Interval<E> remaining;
+		private Interval<E> next;
+		
+		public GapIterator(final Comparator<? super E> comparator, final Interval<E> window,
+				final Iterator<Interval<E>> it, final boolean descending) {
+			this.comparator = comparator;
+			this.it = it;
+			this.descending = descending;
+			this.remaining = window;
+			advance();
+		}
+		
+		/**
+		 * Returns the non-empty part of remaining below i, or null.
+		 */
+		private Interval<E> below(final Interval<E> i) {
+			if (!i.hasInfimum()) {
+				return null;
+			}
+			final Interval<E> gap = new Interval<E>(comparator, remaining.hasInfimum() ? remaining.infimum() : null,
+					i.infimum(), (remaining.config & Interval.INFIMUM_EX_INCLUDED) | Interval.SUPREMUM_EXISTS
+							| (i.isInfimumIncluded() ? 0 : Interval.SUPREMUM_INCLUDED));
+			return gap.isEmpty() ? null : gap;
+		}
+		
+		/**
+		 * Returns the non-empty part of remaining above i, or null.
+		 */
+		private Interval<E> above(final Interval<E> i) {
+			if (!i.hasSupremum()) {
+				return null;
+			}
+			final Interval<E> gap = new Interval<E>(comparator, i.supremum(), remaining.hasSupremum() ? remaining
+					.supremum() : null, Interval.INFIMUM_EXISTS | (i.isSupremumIncluded() ? 0 : Interval.INFIMUM_INCLUDED)
+					| (remaining.config & Interval.SUPREMUM_EX_INCLUDED));
+			return gap.isEmpty() ? null : gap;
+		}
+		
+		private void advance() {
+			next = null;
+			while (next == null && remaining != null) {
+				if (!it.hasNext()) {
+					next = remaining;
+					remaining = null;
+					break;
+				}
+				final Interval<E> i = it.next();
+				if (descending) {
+					next = above(i);
+					remaining = below(i);
+				} else {
+					next = below(i);
+					remaining = above(i);
+				}
+			}
+		}
+		
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+		
+		@Override
+		public Interval<E> next() {
+			if (next == null) {
+				throw new NoSuchElementException();
+			}
+			final Interval<E> result = next;
+			advance();
+			return result;
+		}
+	}
+	
+	/**
+	 * Iterates the parts of ascending Intervals within a non-empty window. It
+	 * skips the Intervals below the window and stops at the first one above.
+	 */
+	private static class WindowIterator<E> implements Iterator<Interval<E>> {
+		private final Iterator<Interval<E>> it;
+		private final Interval<E> window;
+		private Interval<E> next;
+		
+		public WindowIterator(final Iterator<Interval<E>> it, final Interval<E> window) {
+			this.it = it;
+			this.window = window;
+			advance();
+		}
+		
+		private void advance() {
+			next = null;
+			while (it.hasNext()) {
+				final Interval<E> i = it.next();
+				if (i.compareInfimumToSupremum(window) >= 0) {
+					return;
+				} else if (window.compareInfimumToSupremum(i) < 0) {
+					next = span(window.comparator(), i.compareInfima(window) >= 0 ? i : window, i
+							.compareSuprema(window) <= 0 ? i : window);
+					return;
+				}
+			}
+		}
+		
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+		
+		@Override
+		public Interval<E> next() {
+			if (next == null) {
+				throw new NoSuchElementException();
+			}
+			final Interval<E> result = next;
+			advance();
+			return result;
+		}
+	}
+	
+	private static class Union<E> extends Expression<E> {
+		private final List<Range<E>> operands;
+		
+		public Union(final List<Range<E>> operands) {
+			super(comparatorOf(operands.get(0)));
+			for (final Range<E> r : operands) {
+				if (comparatorOf(r) != comparator()) {
+					throw new IncompatibleComparatorException();
+				}
+			}
+			this.operands = operands;
+		}
+		
+		@Override
+		public boolean contains(final E e) {
+			for (final Range<E> r : operands) {
+				if (r.contains(e)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		@Override
+		Iterator<Interval<E>> sweep(final Interval<E> window) {
+			final List<Iterator<Interval<E>>> its = new ArrayList<Iterator<Interval<E>>>(operands.size());
+			for (final Range<E> r : operands) {
+				its.add(intervals(r, window));
+			}
+			return new MergeIterator<E>(comparator(), its, false);
+		}
+		
+		@Override
+		Iterator<Interval<E>> sweepDescending() {
+			final List<Iterator<Interval<E>>> its = new ArrayList<Iterator<Interval<E>>>(operands.size());
+			for (final Range<E> r : operands) {
+				its.add(intervalsDescending(r));
+			}
+			return new MergeIterator<E>(comparator(), its, true);
+		}
+	}
+	
+	/**
+	 * Merges sorted separated Intervals of several iterators by their lower
+	 * bounds, or by their upper bounds if they are descending, and coalesces
+	 * those, that overlap or touch.
+	 */
+	private static class MergeIterator<E> implements Iterator<Interval<E>> {
+		private final Comparator<? super E> comparator;
+		private final boolean descending;
+		private final PriorityQueue<Cursor<E>> queue;
+		
+		public MergeIterator(final Comparator<? super E> comparator, final List<Iterator<Interval<E>>> its,
+				final boolean descending) {
+			this.comparator = comparator;
+			this.descending = descending;
+			this.queue = new PriorityQueue<Cursor<E>>(Math.max(its.size(), 1), descending ? (c1, c2) -> c2.head
+					.compareSuprema(c1.head) : (c1, c2) -> c1.head.compareInfima(c2.head));
+			for (final Iterator<Interval<E>> it : its) {
+				final Cursor<E> cursor = new Cursor<E>(it);
+				if (cursor.advance()) {
+					queue.add(cursor);
+				}
+			}
+		}
+		
+		@Override
+		public boolean hasNext() {
+			return !queue.isEmpty();
+		}
+		
+		@Override
+		public Interval<E> next() {
+			if (queue.isEmpty()) {
+				throw new NoSuchElementException();
+			}
+			Cursor<E> cursor = queue.poll();
+			Interval<E> current = cursor.head;
+			if (cursor.advance()) {
+				queue.add(cursor);
+			}
+			while (!queue.isEmpty() && connected(queue.peek().head, current)) {
+				cursor = queue.poll();
+				if (descending && cursor.head.compareInfima(current) < 0) {
+					current = span(comparator, cursor.head, current);
+				} else if (!descending && cursor.head.compareSuprema(current) > 0) {
+					current = span(comparator, current, cursor.head);
+				}
+				if (cursor.advance()) {
+					queue.add(cursor);
+				}
+			}
+			return current;
+		}
+		
+		/**
+		 * Returns whether i, which comes after current, overlaps or touches it.
+		 */
+		private boolean connected(final Interval<E> i, final Interval<E> current) {
+			return descending ? current.compareInfimumToSupremum(i) <= 0 : i.compareInfimumToSupremum(current) <= 0;
+		}
+	}
+	
+	private static class Cursor<E> {
+		private final Iterator<Interval<E>> it;
+		private Interval<E> head;
+		
+		public Cursor(final Iterator<Interval<E>> it) {
+			this.it = it;
+		}
+		
+		public boolean advance() {
+			head = it.hasNext() ? it.next() : null;
+			return head != null;
+		}
+	}
+}
@@ -0,0 +1,1214 @@
+package util.range;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A set of ints, that partitions the domain into chunks of 2^16 elements
+ * sharing their upper 16 bits. The lower bits of the elements of a chunk are
+ * held by whichever container is smallest for them: a sorted array of up to
+ * 4096 values, a bitmap of 2^16 bits or a sorted array of runs. Scattered
+ * points thus cost two bytes each, long runs four bytes per run and dense
+ * chunks one bit per element, while operations between two such sets combine
+ * the chunks by 64 bit words. As the elements are discrete, Intervals are
+ * normalized to their included ints, so (1,5) is stored and returned as
+ * [2,4], and Intervals, that only touch over the ints like [1,2] and [3,4],
+ * are coalesced.
+ */
+public class RoaringIntegerSet implements WritableRange<Integer> {
+	private static final int ARRAY_MAX = 4096;
+	private static final int BITMAP_BYTES = 8192;
+	private static final int WORDS = 1024;
+	private static final int LOW_MAX = 0xFFFF;
+	
+	/**
+	 * The upper 16 bits of the chunks in ascending order, with the sign bit
+	 * flipped, so that they sort like the signed elements.
+	 */
+	private char[] keys;
+	private Container[] containers;
+	private int size;
+	
+	public RoaringIntegerSet() {
+		this.keys = new char[4];
+		this.containers = new Container[4];
+		this.size = 0;
+	}
+	
+	private static int high(final int e) {
+		return (e >>> 16) ^ 0x8000;
+	}
+	
+	private static int low(final int e) {
+		return e & LOW_MAX;
+	}
+	
+	private static int element(final int high, final int low) {
+		return ((high ^ 0x8000) << 16) | low;
+	}
+	
+	/**
+	 * Returns the index of key, or -(insertion point + 1) if it has no chunk.
+	 */
+	private int index(final int key) {
+		int lo = 0;
+		int hi = size - 1;
+		while (lo <= hi) {
+			final int mid = (lo + hi) >>> 1;
+			if (keys[mid] < key) {
+				lo = mid + 1;
+			} else if (keys[mid] > key) {
+				hi = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -(lo + 1);
+	}
+	
+	/**
+	 * Returns the index of the first chunk whose key is not below key.
+	 */
+	private int firstIndex(final int key) {
+		final int k = index(key);
+		return k >= 0 ? k : -k - 1;
+	}
+	
+	/**
+	 * Replaces the chunks from (inclusive) to to (exclusive) by count
+	 * uninitialized slots.
+	 */
+	private void splice(final int from, final int to, final int count) {
+		final int newSize = size - (to - from) + count;
+		if (newSize > keys.length) {
+			final int capacity = Math.max(newSize, 2 * keys.length);
+			keys = Arrays.copyOf(keys, capacity);
+			containers = Arrays.copyOf(containers, capacity);
+		}
+		System.arraycopy(keys, to, keys, from + count, size - to);
+		System.arraycopy(containers, to, containers, from + count, size - to);
+		for (int k = newSize; k < size; k++) {
+			containers[k] = null;
+		}
+		size = newSize;
+	}
+	
+	/**
+	 * Stores c for the chunk at index k, removing the chunk if c is null.
+	 */
+	private void set(final int k, final Container c) {
+		if (c == null) {
+			splice(k, k + 1, 0);
+		} else {
+			containers[k] = c;
+		}
+	}
+	
+	/**
+	 * Returns the lowest int in i, which is above Integer.MAX_VALUE if there
+	 * is none.
+	 */
+	private static long lowest(final Interval<Integer> i) {
+		if (!i.hasInfimum()) {
+			return Integer.MIN_VALUE;
+		}
+		return i.isInfimumIncluded() ? i.infimum() : i.infimum() + 1L;
+	}
+	
+	/**
+	 * Returns the highest int in i, which is below Integer.MIN_VALUE if there
+	 * is none.
+	 */
+	private static long highest(final Interval<Integer> i) {
+		if (!i.hasSupremum()) {
+			return Integer.MAX_VALUE;
+		}
+		return i.isSupremumIncluded() ? i.supremum() : i.supremum() - 1L;
+	}
+	
+	private static void checkComparator(final Interval<Integer> i) {
+		if (i.comparator() != null) {
+			throw new IncompatibleComparatorException();
+		}
+	}
+	
+	/**
+	 * Returns the number of elements.
+	 */
+	public long cardinality() {
+		long cardinality = 0;
+		for (int k = 0; k < size; k++) {
+			cardinality += containers[k].cardinality();
+		}
+		return cardinality;
+	}
+	
+	/**
+	 * Returns an estimate of the bytes held by the containers.
+	 */
+	public long sizeInBytes() {
+		long bytes = 3L * keys.length;
+		for (int k = 0; k < size; k++) {
+			bytes += containers[k].sizeInBytes();
+		}
+		return bytes;
+	}
+	
+	/**
+	 * Converts every container to the smallest representation. Changes of
+	 * single elements only switch containers at the size limit of arrays, so
+	 * this may save memory after many of them.
+	 */
+	public void optimize() {
+		for (int k = 0; k < size; k++) {
+			containers[k] = best(containers[k].toWords());
+		}
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	/**
+	 * As the elements are discrete, every set is a finite Set.
+	 */
+	@Override
+	public boolean isSet() {
+		return true;
+	}
+	
+	@Override
+	public Set<Integer> toSet() {
+		final Set<Integer> set = new HashSet<Integer>();
+		for (int k = 0; k < size; k++) {
+			for (int v = containers[k].next(0); v >= 0; v = v == LOW_MAX ? -1 : containers[k].next(v + 1)) {
+				set.add(element(keys[k], v));
+			}
+		}
+		return set;
+	}
+	
+	public boolean contains(final int e) {
+		final int k = index(high(e));
+		return k >= 0 && containers[k].contains(low(e));
+	}
+	
+	@Override
+	public boolean contains(final Integer e) {
+		return contains(e.intValue());
+	}
+	
+	/**
+	 * Whether any element from (inclusive) to to (inclusive) is contained.
+	 */
+	public boolean intersects(final int from, final int to) {
+		if (from > to) {
+			return false;
+		}
+		final int kf = high(from);
+		final int kt = high(to);
+		for (int k = firstIndex(kf); k < size && keys[k] <= kt; k++) {
+			if (containers[k].intersects(keys[k] == kf ? low(from) : 0, keys[k] == kt ? low(to) : LOW_MAX)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	@Override
+	public boolean intersects(final Interval<Integer> i) {
+		checkComparator(i);
+		final long from = lowest(i);
+		final long to = highest(i);
+		return !i.isEmpty() && from <= to && intersects((int) from, (int) to);
+	}
+	
+	/**
+	 * Whether r shares an element with this set. If r is a RoaringIntegerSet,
+	 * only the chunks present in both sets are compared, by their words.
+	 */
+	@Override
+	public boolean intersects(final Range<Integer> r) {
+		if (r instanceof RoaringIntegerSet) {
+			final RoaringIntegerSet other = (RoaringIntegerSet) r;
+			int a = 0;
+			int b = 0;
+			while (a < size && b < other.size) {
+				if (keys[a] < other.keys[b]) {
+					a++;
+				} else if (keys[a] > other.keys[b]) {
+					b++;
+				} else if (containers[a].intersects(other.containers[b])) {
+					return true;
+				} else {
+					a++;
+					b++;
+				}
+			}
+			return false;
+		}
+		final Iterator<Interval<Integer>> it = r.toSeparateIntervalSet().iterateIntervals();
+		while (it.hasNext()) {
+			if (intersects(it.next())) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Iterates the maximal runs of consecutive elements as closed Intervals in
+	 * ascending order. Runs continue across chunks.
+	 */
+	public Iterator<Interval<Integer>> iterateIntervals() {
+		return new Iterator<Interval<Integer>>() {
+			private int k = 0;
+			private int v = size == 0 ? -1 : containers[0].next(0);
+			
+			@Override
+			public boolean hasNext() {
+				return k < size;
+			}
+			
+			@Override
+			public Interval<Integer> next() {
+				if (k >= size) {
+					throw new NoSuchElementException();
+				}
+				final int from = element(keys[k], v);
+				int end = containers[k].runEnd(v);
+				while (end == LOW_MAX && k + 1 < size && keys[k + 1] == keys[k] + 1 && containers[k + 1].contains(0)) {
+					k++;
+					end = containers[k].runEnd(0);
+				}
+				final int to = element(keys[k], end);
+				v = end == LOW_MAX ? -1 : containers[k].next(end + 1);
+				if (v < 0 && ++k < size) {
+					v = containers[k].next(0);
+				}
+				return new Interval<Integer>(from, to, Interval.INFIMUM_EX_INCLUDED | Interval.SUPREMUM_EX_INCLUDED);
+			}
+		};
+	}
+	
+	@Override
+	public boolean hasInfimum() {
+		return size > 0;
+	}
+	
+	@Override
+	public Integer infimum() {
+		if (this.hasInfimum()) {
+			return element(keys[0], containers[0].next(0));
+		} else {
+			throw new NoSuchExtremumException("Infimum");
+		}
+	}
+	
+	@Override
+	public boolean isInfimumIncluded() {
+		if (this.hasInfimum()) {
+			return true;
+		} else {
+			throw new NoSuchExtremumException("Infimum");
+		}
+	}
+	
+	@Override
+	public boolean hasSupremum() {
+		return size > 0;
+	}
+	
+	@Override
+	public Integer supremum() {
+		if (this.hasSupremum()) {
+			return element(keys[size - 1], containers[size - 1].last());
+		} else {
+			throw new NoSuchExtremumException("Supremum");
+		}
+	}
+	
+	@Override
+	public boolean isSupremumIncluded() {
+		if (this.hasSupremum()) {
+			return true;
+		} else {
+			throw new NoSuchExtremumException("Supremum");
+		}
+	}
+	
+	@Override
+	public boolean isLowerBound(final Integer e) {
+		return this.isEmpty() || infimum() >= e;
+	}
+	
+	@Override
+	public boolean isUpperBound(final Integer e) {
+		return this.isEmpty() || supremum() <= e;
+	}
+	
+	@Override
+	public boolean isStrictLowerBound(final Integer e) {
+		return this.isEmpty() || infimum() > e;
+	}
+	
+	@Override
+	public boolean isStrictUpperBound(final Integer e) {
+		return this.isEmpty() || supremum() < e;
+	}
+	
+	@Override
+	public SeparateIntervalSet<Integer> toSeparateIntervalSet() {
+		final List<Interval<Integer>> intervals = new ArrayList<Interval<Integer>>();
+		final Iterator<Interval<Integer>> it = iterateIntervals();
+		while (it.hasNext()) {
+			intervals.add(it.next());
+		}
+		return SeparateIntervalSet.ofSeparated(null, intervals);
+	}
+	
+	@Override
+	public String toString() {
+		if (size == 0) {
+			return "O";
+		}
+		final Iterator<Interval<Integer>> it = iterateIntervals();
+		final StringBuilder sb = new StringBuilder(it.next().toString());
+		while (it.hasNext()) {
+			sb.append("U").append(it.next().toString());
+		}
+		return sb.toString();
+	}
+	
+	public void add(final int e) {
+		final int key = high(e);
+		final int k = index(key);
+		if (k >= 0) {
+			containers[k] = containers[k].add(low(e), low(e));
+		} else {
+			splice(-k - 1, -k - 1, 1);
+			keys[-k - 1] = (char) key;
+			containers[-k - 1] = new ArrayContainer(low(e));
+		}
+	}
+	
+	@Override
+	public void add(final Integer e) {
+		add(e.intValue());
+	}
+	
+	public void remove(final int e) {
+		final int k = index(high(e));
+		if (k >= 0) {
+			set(k, containers[k].remove(low(e), low(e)));
+		}
+	}
+	
+	@Override
+	public void remove(final Integer e) {
+		remove(e.intValue());
+	}
+	
+	/**
+	 * Adds all elements from (inclusive) to to (inclusive). Whole chunks
+	 * become single runs.
+	 */
+	public void union(final int from, final int to) {
+		if (from > to) {
+			return;
+		}
+		final int kf = high(from);
+		final int kt = high(to);
+		final int first = firstIndex(kf);
+		int last = first;
+		while (last < size && keys[last] <= kt) {
+			last++;
+		}
+		final int count = kt - kf + 1;
+		final Container[] old = Arrays.copyOfRange(containers, first, last);
+		final char[] oldKeys = Arrays.copyOfRange(keys, first, last);
+		splice(first, last, count);
+		int o = 0;
+		for (int key = kf; key <= kt; key++) {
+			final int lo = key == kf ? low(from) : 0;
+			final int hi = key == kt ? low(to) : LOW_MAX;
+			final int k = first + key - kf;
+			keys[k] = (char) key;
+			if (o < old.length && oldKeys[o] == key) {
+				containers[k] = old[o++].add(lo, hi);
+			} else {
+				containers[k] = new RunContainer(lo, hi);
+			}
+		}
+	}
+	
+	@Override
+	public void union(final Interval<Integer> i) {
+		checkComparator(i);
+		final long from = lowest(i);
+		final long to = highest(i);
+		if (!i.isEmpty() && from <= to) {
+			union((int) from, (int) to);
+		}
+	}
+	
+	/**
+	 * Removes all elements from (inclusive) to to (inclusive). Whole chunks
+	 * are dropped.
+	 */
+	public void remove(final int from, final int to) {
+		if (from > to) {
+			return;
+		}
+		final int kf = high(from);
+		final int kt = high(to);
+		int write = firstIndex(kf);
+		int read = write;
+		while (read < size && keys[read] <= kt) {
+			final int lo = keys[read] == kf ? low(from) : 0;
+			final int hi = keys[read] == kt ? low(to) : LOW_MAX;
+			final Container c = lo == 0 && hi == LOW_MAX ? null : containers[read].remove(lo, hi);
+			if (c != null) {
+				keys[write] = keys[read];
+				containers[write++] = c;
+			}
+			read++;
+		}
+		splice(write, read, 0);
+	}
+	
+	@Override
+	public void remove(final Interval<Integer> i) {
+		checkComparator(i);
+		final long from = lowest(i);
+		final long to = highest(i);
+		if (!i.isEmpty() && from <= to) {
+			remove((int) from, (int) to);
+		}
+	}
+	
+	@Override
+	public void clear() {
+		keys = new char[4];
+		containers = new Container[4];
+		size = 0;
+	}
+	
+	/**
+	 * Adds all elements of r. If r is a RoaringIntegerSet, the chunks present
+	 * in both sets are combined word by word.
+	 */
+	@Override
+	public void union(final Range<Integer> r) {
+		if (!(r instanceof RoaringIntegerSet)) {
+			WritableRange.super.union(r);
+			return;
+		}
+		final RoaringIntegerSet other = (RoaringIntegerSet) r;
+		final char[] newKeys = new char[size + other.size];
+		final Container[] newContainers = new Container[size + other.size];
+		int a = 0;
+		int b = 0;
+		int n = 0;
+		while (a < size || b < other.size) {
+			if (b == other.size || (a < size && keys[a] < other.keys[b])) {
+				newKeys[n] = keys[a];
+				newContainers[n++] = containers[a++];
+			} else if (a == size || keys[a] > other.keys[b]) {
+				newKeys[n] = other.keys[b];
+				newContainers[n++] = other.containers[b++].copy();
+			} else {
+				final long[] words = containers[a].toWords();
+				other.containers[b++].or(words);
+				newKeys[n] = keys[a++];
+				newContainers[n++] = best(words);
+			}
+		}
+		keys = newKeys;
+		containers = newContainers;
+		size = n;
+	}
+	
+	/**
+	 * Removes all elements of r. If r is a RoaringIntegerSet, the chunks
+	 * present in both sets are combined word by word.
+	 */
+	@Override
+	public void remove(final Range<Integer> r) {
+		if (!(r instanceof RoaringIntegerSet)) {
+			WritableRange.super.remove(r);
+			return;
+		}
+		final RoaringIntegerSet other = (RoaringIntegerSet) r;
+		int write = 0;
+		int b = 0;
+		for (int a = 0; a < size; a++) {
+			while (b < other.size && other.keys[b] < keys[a]) {
+				b++;
+			}
+			Container c = containers[a];
+			if (b < other.size && other.keys[b] == keys[a]) {
+				final long[] words = c.toWords();
+				other.containers[b].andNot(words);
+				c = best(words);
+			}
+			if (c != null) {
+				keys[write] = keys[a];
+				containers[write++] = c;
+			}
+		}
+		splice(write, size, 0);
+	}
+	
+	/**
+	 * Removes all elements, that are not contained in r. The chunks present in
+	 * both sets are combined word by word, so a Range, that is no
+	 * RoaringIntegerSet, is converted first.
+	 */
+	public void retain(final Range<Integer> r) {
+		final RoaringIntegerSet other;
+		if (r instanceof RoaringIntegerSet) {
+			other = (RoaringIntegerSet) r;
+		} else {
+			other = new RoaringIntegerSet();
+			other.union(r);
+		}
+		int write = 0;
+		int b = 0;
+		for (int a = 0; a < size; a++) {
+			while (b < other.size && other.keys[b] < keys[a]) {
+				b++;
+			}
+			if (b < other.size && other.keys[b] == keys[a]) {
+				final long[] words = containers[a].toWords();
+				other.containers[b].and(words);
+				final Container c = best(words);
+				if (c != null) {
+					keys[write] = keys[a];
+					containers[write++] = c;
+				}
+			}
+		}
+		splice(write, size, 0);
+	}
+	
+	private static void setRange(final long[] words, final int from, final int to) {
+		final int first = from >>> 6;
+		final int last = to >>> 6;
+		if (first == last) {
+			words[first] |= (-1L << from) & (-1L >>> (63 - (to & 63)));
+		} else {
+			words[first] |= -1L << from;
+			for (int k = first + 1; k < last; k++) {
+				words[k] = -1L;
+			}
+			words[last] |= -1L >>> (63 - (to & 63));
+		}
+	}
+	
+	private static void clearRange(final long[] words, final int from, final int to) {
+		final int first = from >>> 6;
+		final int last = to >>> 6;
+		if (first == last) {
+			words[first] &= ~((-1L << from) & (-1L >>> (63 - (to & 63))));
+		} else {
+			words[first] &= ~(-1L << from);
+			for (int k = first + 1; k < last; k++) {
+				words[k] = 0;
+			}
+			words[last] &= ~(-1L >>> (63 - (to & 63)));
+		}
+	}
+	
+	/**
+	 * Returns the smallest container holding the bits of words, or null if
+	 * there are none.
+	 */
+	private static Container best(final long[] words) {
+		int cardinality = 0;
+		int runs = 0;
+		long carry = 0;
+		for (final long w : words) {
+			cardinality += Long.bitCount(w);
+			runs += Long.bitCount(w & ~((w << 1) | carry));
+			carry = w >>> 63;
+		}
+		if (cardinality == 0) {
+			return null;
+		} else if (4 * runs <= Math.min(2 * cardinality, BITMAP_BYTES)) {
+			return RunContainer.of(words, runs);
+		} else if (cardinality <= ARRAY_MAX) {
+			return ArrayContainer.of(words, cardinality);
+		} else {
+			return new BitmapContainer(words, cardinality);
+		}
+	}
+	
+	/**
+	 * Holds the lower 16 bits of the elements of one chunk, which is never
+	 * empty. Changes return the container to use from then on, which may be
+	 * this one, one of another kind, or null if the chunk became empty.
+	 */
+	private abstract static class Container {
+		abstract int cardinality();
+		
+		abstract int sizeInBytes();
+		
+		abstract boolean contains(int v);
+		
+		/**
+		 * Returns the smallest value not below from, or -1 if there is none.
+		 */
+		abstract int next(int from);
+		
+		/**
+		 * Returns the last value of the run of consecutive values starting at
+		 * the contained value from.
+		 */
+		abstract int runEnd(int from);
+		
+		abstract int last();
+		
+		/**
+		 * Whether a value from (inclusive) to to (inclusive) is contained.
+		 */
+		abstract boolean intersects(int from, int to);
+		
+		boolean intersects(final Container other) {
+			final long[] words = toWords();
+			other.and(words);
+			for (final long w : words) {
+				if (w != 0) {
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		abstract Container add(int from, int to);
+		
+		abstract Container remove(int from, int to);
+		
+		abstract Container copy();
+		
+		/**
+		 * Returns the values as a new bitmap of 1024 words.
+		 */
+		long[] toWords() {
+			final long[] words = new long[WORDS];
+			or(words);
+			return words;
+		}
+		
+		abstract void or(long[] words);
+		
+		void and(final long[] words) {
+			final long[] own = toWords();
+			for (int k = 0; k < WORDS; k++) {
+				words[k] &= own[k];
+			}
+		}
+		
+		void andNot(final long[] words) {
+			final long[] own = toWords();
+			for (int k = 0; k < WORDS; k++) {
+				words[k] &= ~own[k];
+			}
+		}
+	}
+	
+	private static final class ArrayContainer extends Container {
+		private char[] values;
+		private int n;
+		
+		public ArrayContainer(final int v) {
+			this.values = new char[4];
+			this.values[0] = (char) v;
+			this.n = 1;
+		}
+		
+		private ArrayContainer(final char[] values, final int n) {
+			this.values = values;
+			this.n = n;
+		}
+		
+		static ArrayContainer of(final long[] words, final int cardinality) {
+			final char[] values = new char[cardinality];
+			int n = 0;
+			for (int k = 0; k < WORDS; k++) {
+				long w = words[k];
+				while (w != 0) {
+					values[n++] = (char) ((k << 6) + Long.numberOfTrailingZeros(w));
+					w &= w - 1;
+				}
+			}
+			return new ArrayContainer(values, n);
+		}
+		
+		/**
+		 * Returns the index of the first value not below v.
+		 */
+		private int lowerBound(final int v) {
+			int lo = 0;
+			int hi = n;
+			while (lo < hi) {
+				final int mid = (lo + hi) >>> 1;
+				if (values[mid] < v) {
+					lo = mid + 1;
+				} else {
+					hi = mid;
+				}
+			}
+			return lo;
+		}
+		
+		@Override
+		int cardinality() {
+			return n;
+		}
+		
+		@Override
+		int sizeInBytes() {
+			return 2 * values.length + 16;
+		}
+		
+		@Override
+		boolean contains(final int v) {
+			final int k = lowerBound(v);
+			return k < n && values[k] == v;
+		}
+		
+		@Override
+		int next(final int from) {
+			final int k = lowerBound(from);
+			return k < n ? values[k] : -1;
+		}
+		
+		@Override
+		int runEnd(final int from) {
+			int k = lowerBound(from);
+			while (k + 1 < n && values[k + 1] == values[k] + 1) {
+				k++;
+			}
+			return values[k];
+		}
+		
+		@Override
+		int last() {
+			return values[n - 1];
+		}
+		
+		@Override
+		boolean intersects(final int from, final int to) {
+			final int k = lowerBound(from);
+			return k < n && values[k] <= to;
+		}
+		
+		@Override
+		boolean intersects(final Container other) {
+			for (int k = 0; k < n; k++) {
+				if (other.contains(values[k])) {
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		@Override
+		Container add(final int from, final int to) {
+			final int i = lowerBound(from);
+			final int j = lowerBound(to + 1);
+			final int newN = n - (j - i) + (to - from + 1);
+			if (newN > ARRAY_MAX) {
+				final long[] words = toWords();
+				setRange(words, from, to);
+				return best(words);
+			}
+			if (newN > values.length) {
+				values = Arrays.copyOf(values, Math.min(Math.max(newN, 2 * values.length), ARRAY_MAX));
+			}
+			System.arraycopy(values, j, values, i + to - from + 1, n - j);
+			for (int v = from; v <= to; v++) {
+				values[i + v - from] = (char) v;
+			}
+			n = newN;
+			return shrink();
+		}
+		
+		@Override
+		Container remove(final int from, final int to) {
+			final int i = lowerBound(from);
+			final int j = lowerBound(to + 1);
+			if (i == j) {
+				return this;
+			}
+			System.arraycopy(values, j, values, i, n - j);
+			n -= j - i;
+			return n == 0 ? null : shrink();
+		}
+		
+		/**
+		 * Switches to runs if they are smaller, which is found in O(n).
+		 */
+		private Container shrink() {
+			int runs = 1;
+			for (int k = 1; k < n; k++) {
+				if (values[k] != values[k - 1] + 1) {
+					runs++;
+				}
+			}
+			return 4 * runs <= 2 * n ? best(toWords()) : this;
+		}
+		
+		@Override
+		Container copy() {
+			return new ArrayContainer(Arrays.copyOf(values, n), n);
+		}
+		
+		@Override
+		void or(final long[] words) {
+			for (int k = 0; k < n; k++) {
+				words[values[k] >>> 6] |= 1L << values[k];
+			}
+		}
+	}
+	
+	private static final class BitmapContainer extends Container {
+		private final long[] words;
+		private int cardinality;
+		
+		public BitmapContainer(final long[] words, final int cardinality) {
+			this.words = words;
+			this.cardinality = cardinality;
+		}
+		
+		@Override
+		int cardinality() {
+			return cardinality;
+		}
+		
+		@Override
+		int sizeInBytes() {
+			return BITMAP_BYTES + 16;
+		}
+		
+		@Override
+		boolean contains(final int v) {
+			return (words[v >>> 6] & (1L << v)) != 0;
+		}
+		
+		@Override
+		int next(final int from) {
+			int k = from >>> 6;
+			long w = words[k] & (-1L << from);
+			while (w == 0) {
+				if (++k == WORDS) {
+					return -1;
+				}
+				w = words[k];
+			}
+			return (k << 6) + Long.numberOfTrailingZeros(w);
+		}
+		
+		@Override
+		int runEnd(final int from) {
+			int k = from >>> 6;
+			long w = ~words[k] & (-1L << from);
+			while (w == 0) {
+				if (++k == WORDS) {
+					return LOW_MAX;
+				}
+				w = ~words[k];
+			}
+			return (k << 6) + Long.numberOfTrailingZeros(w) - 1;
+		}
+		
+		@Override
+		int last() {
+			int k = WORDS - 1;
+			while (words[k] == 0) {
+				k--;
+			}
+			return (k << 6) + 63 - Long.numberOfLeadingZeros(words[k]);
+		}
+		
+		@Override
+		boolean intersects(final int from, final int to) {
+			final int v = next(from);
+			return v >= 0 && v <= to;
+		}
+		
+		@Override
+		Container add(final int from, final int to) {
+			if (from == to) {
+				if (!contains(from)) {
+					words[from >>> 6] |= 1L << from;
+					cardinality++;
+				}
+				return this;
+			}
+			setRange(words, from, to);
+			return best(words);
+		}
+		
+		@Override
+		Container remove(final int from, final int to) {
+			if (from == to) {
+				if (contains(from)) {
+					words[from >>> 6] &= ~(1L << from);
+					cardinality--;
+				}
+				return cardinality == 0 ? null : cardinality <= ARRAY_MAX ? ArrayContainer.of(words, cardinality)
+						: this;
+			}
+			clearRange(words, from, to);
+			return best(words);
+		}
+		
+		@Override
+		Container copy() {
+			return new BitmapContainer(words.clone(), cardinality);
+		}
+		
+		@Override
+		long[] toWords() {
+			return words.clone();
+		}
+		
+		@Override
+		void or(final long[] words) {
+			for (int k = 0; k < WORDS; k++) {
+				words[k] |= this.words[k];
+			}
+		}
+		
+		@Override
+		void and(final long[] words) {
+			for (int k = 0; k < WORDS; k++) {
+				words[k] &= this.words[k];
+			}
+		}
+		
+		@Override
+		void andNot(final long[] words) {
+			for (int k = 0; k < WORDS; k++) {
+				words[k] &= ~this.words[k];
+			}
+		}
+	}
+	
+	/**
+	 * Holds sorted, pairwise separated runs of values. The k-th run spans
+	 * runs[2k] to runs[2k + 1], both included.
+	 */
+	private static final class RunContainer extends Container {
+		private char[] runs;
+		private int n;
+		
+		public RunContainer(final int from, final int to) {
+			this.runs = new char[] { (char) from, (char) to };
+			this.n = 1;
+		}
+		
+		private RunContainer(final char[] runs, final int n) {
+			this.runs = runs;
+			this.n = n;
+		}
+		
+		static RunContainer of(final long[] words, final int count) {
+			final char[] runs = new char[2 * count];
+			int n = 0;
+			int v = 0;
+			while (v <= LOW_MAX && (v = nextSet(words, v)) >= 0) {
+				final int end = nextClear(words, v) - 1;
+				runs[2 * n] = (char) v;
+				runs[2 * n + 1] = (char) end;
+				n++;
+				v = end + 1;
+			}
+			return new RunContainer(runs, n);
+		}
+		
+		private static int nextSet(final long[] words, final int from) {
+			int k = from >>> 6;
+			long w = words[k] & (-1L << from);
+			while (w == 0) {
+				if (++k == WORDS) {
+					return -1;
+				}
+				w = words[k];
+			}
+			return (k << 6) + Long.numberOfTrailingZeros(w);
+		}
+		
+		private static int nextClear(final long[] words, final int from) {
+			int k = from >>> 6;
+			long w = ~words[k] & (-1L << from);
+			while (w == 0) {
+				if (++k == WORDS) {
+					return LOW_MAX + 1;
+				}
+				w = ~words[k];
+			}
+			return (k << 6) + Long.numberOfTrailingZeros(w);
+		}
+		
+		/**
+		 * Returns the index of the first run ending at or above v, or n if
+		 * there is none.
+		 */
+		private int firstEndingAbove(final int v) {
+			int lo = 0;
+			int hi = n;
+			while (lo < hi) {
+				final int mid = (lo + hi) >>> 1;
+				if (runs[2 * mid + 1] < v) {
+					lo = mid + 1;
+				} else {
+					hi = mid;
+				}
+			}
+			return lo;
+		}
+		
+		/**
+		 * Returns the index of the last run starting at or below v, or -1 if
+		 * there is none.
+		 */
+		private int lastStartingBelow(final int v) {
+			int lo = 0;
+			int hi = n;
+			while (lo < hi) {
+				final int mid = (lo + hi) >>> 1;
+				if (runs[2 * mid] <= v) {
+					lo = mid + 1;
+				} else {
+					hi = mid;
+				}
+			}
+			return lo - 1;
+		}
+		
+		/**
+		 * Replaces the runs from (inclusive) to to (exclusive) by count
+		 * uninitialized slots.
+		 */
+		private void splice(final int from, final int to, final int count) {
+			final int newN = n - (to - from) + count;
+			if (2 * newN > runs.length) {
+				runs = Arrays.copyOf(runs, 2 * Math.max(newN, n + n / 2));
+			}
+			System.arraycopy(runs, 2 * to, runs, 2 * (from + count), 2 * (n - to));
+			n = newN;
+		}
+		
+		@Override
+		int cardinality() {
+			int cardinality = 0;
+			for (int k = 0; k < n; k++) {
+				cardinality += runs[2 * k + 1] - runs[2 * k] + 1;
+			}
+			return cardinality;
+		}
+		
+		@Override
+		int sizeInBytes() {
+			return 2 * runs.length + 16;
+		}
+		
+		@Override
+		boolean contains(final int v) {
+			final int k = lastStartingBelow(v);
+			return k >= 0 && v <= runs[2 * k + 1];
+		}
+		
+		@Override
+		int next(final int from) {
+			final int k = firstEndingAbove(from);
+			return k < n ? Math.max(runs[2 * k], from) : -1;
+		}
+		
+		@Override
+		int runEnd(final int from) {
+			return runs[2 * firstEndingAbove(from) + 1];
+		}
+		
+		@Override
+		int last() {
+			return runs[2 * n - 1];
+		}
+		
+		@Override
+		boolean intersects(final int from, final int to) {
+			final int k = firstEndingAbove(from);
+			return k < n && runs[2 * k] <= to;
+		}
+		
+		@Override
+		Container add(int from, int to) {
+			// Runs, that touch the new one, are merged as well.
+			final int i = firstEndingAbove(from - 1);
+			final int j = lastStartingBelow(to + 1);
+			if (i <= j) {
+				from = Math.min(from, runs[2 * i]);
+				to = Math.max(to, runs[2 * j + 1]);
+			}
+			splice(i, j + 1, 1);
+			runs[2 * i] = (char) from;
+			runs[2 * i + 1] = (char) to;
+			return shrink();
+		}
+		
+		@Override
+		Container remove(final int from, final int to) {
+			final int i = firstEndingAbove(from);
+			final int j = lastStartingBelow(to);
+			if (i > j) {
+				return this;
+			}
+			final int lower = runs[2 * i];
+			final int upper = runs[2 * j + 1];
+			final boolean keepLower = lower < from;
+			final boolean keepUpper = upper > to;
+			splice(i, j + 1, (keepLower ? 1 : 0) + (keepUpper ? 1 : 0));
+			int k = i;
+			if (keepLower) {
+				runs[2 * k] = (char) lower;
+				runs[2 * k + 1] = (char) (from - 1);
+				k++;
+			}
+			if (keepUpper) {
+				runs[2 * k] = (char) (to + 1);
+				runs[2 * k + 1] = (char) upper;
+			}
+			return n == 0 ? null : shrink();
+		}
+		
+		/**
+		 * Switches to an array or bitmap if it is smaller, which is found in
+		 * O(n).
+		 */
+		private Container shrink() {
+			final int cardinality = cardinality();
+			return 4 * n > Math.min(2 * cardinality, BITMAP_BYTES) ? best(toWords()) : this;
+		}
+		
+		@Override
+		Container copy() {
+			return new RunContainer(Arrays.copyOf(runs, 2 * n), n);
+		}
+		
+		@Override
+		void or(final long[] words) {
+			for (int k = 0; k < n; k++) {
+				setRange(words, runs[2 * k], runs[2 * k + 1]);
+			}
+		}
+	}
+}
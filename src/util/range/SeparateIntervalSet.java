@@ -1,831 +1,365 @@
 package util.range;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
-import java.util.NoSuchElementException;
+import java.util.List;
 import java.util.Set;
-import java.util.Stack;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collector;
 
-public class SeparateIntervalSet<E> implements WritableRange<E> {
-	private TreeNode root;
+/**
+ * A set of pairwise separated {@link Interval}s, held in an AVL tree ordered
+ * by their bounds and changed in place.
+ */
+public class SeparateIntervalSet<E> extends AbstractSeparateIntervalSet<E> implements WritableRange<E> {
+	private long coalesces;
+	private long splits;
+	/**
+	 * Created on the first listener, so sets without listeners do not collect
+	 * any changes.
+	 */
+	private List<IntervalSetListener<E>> listeners;
 	
 	public SeparateIntervalSet() {
-		this.root = null;
+		this(null);
 	}
 	
-	@Override
-	public boolean isEmpty() {
-		return root == null;
+	public SeparateIntervalSet(final Comparator<? super E> comparator) {
+		super(comparator, null);
 	}
 	
-	@Override
-	public boolean isSet() {
-		return root == null || root.isSet();
+	/**
+	 * Creates a set of the union of intervals, using the comparator of the
+	 * first one. The Intervals are sorted and coalesced in one sweep and the
+	 * tree is built directly, which is O(n log n), or O(n) if intervals is
+	 * already sorted.
+	 */
+	public static <E> SeparateIntervalSet<E> of(final Collection<Interval<E>> intervals) {
+		final Iterator<Interval<E>> it = intervals.iterator();
+		return of(it.hasNext() ? it.next().comparator() : null, intervals);
 	}
 	
-	@Override
-	public Set<E> toSet() {
-		Set<E> set = new HashSet<E>();
-		if (root != null) {
-			root.addToSet(set);
+	public static <E> SeparateIntervalSet<E> of(final Comparator<? super E> comparator,
+			final Collection<Interval<E>> intervals) {
+		final SeparateIntervalSet<E> result = new SeparateIntervalSet<E>(comparator);
+		final List<Interval<E>> sorted = new ArrayList<Interval<E>>(intervals.size());
+		for (final Interval<E> i : intervals) {
+			if (!i.isEmpty()) {
+				result.checkComparator(i);
+				sorted.add(i);
+			}
+		}
+		sorted.sort(Interval::compareInfima);
+		final List<Interval<E>> separated = new ArrayList<Interval<E>>();
+		for (final Interval<E> i : sorted) {
+			result.append(separated, i);
 		}
-		return set;
+		result.build(separated);
+		return result;
 	}
 	
-	@Override
-	public boolean contains(E e) {
-		TreeNode node = root;
-		while (node != null) {
-			if (root.value.contains(e)) {
-				return true;
-			} else if (node.value.isLowerBound(e)) {
-				node = node.left;
-			} else {
-				node = node.right;
-			}
-		}
-		return false;
+	/**
+	 * Creates a set of sorted, pairwise separated Intervals using comparator,
+	 * building the tree directly in O(n).
+	 */
+	static <E> SeparateIntervalSet<E> ofSeparated(final Comparator<? super E> comparator,
+			final List<Interval<E>> intervals) {
+		final SeparateIntervalSet<E> result = new SeparateIntervalSet<E>(comparator);
+		result.build(intervals);
+		return result;
 	}
 	
-	@Override
-	public boolean intersects(Interval<E> i) {
-		TreeNode node = root;
-		while (node != null) {
-			if (root.value.intersects(i)) {
-				return true;
-			} else if (node.value.isLowerBound(i.supremum())) {
-				node = node.left;
-			} else {
-				node = node.right;
-			}
-		}
-		return false;
+	/**
+	 * Creates a set of points in natural order. See
+	 * {@link #fromPoints(Comparator, Collection)}.
+	 */
+	public static <E> SeparateIntervalSet<E> fromPoints(final Collection<E> points) {
+		return fromPoints(null, points);
 	}
 	
-	@Override
-	public boolean intersects(Range<E> r) {
-		if (r.isEmpty() || this.isEmpty()) {
-			return false;
-		}
-		Iterator<Interval<E>> il = r.toSeparateIntervalSet().iterateIntervals();
-		Iterator<Interval<E>> ih = this.iterateIntervals();
-		Interval<E> el = il.next();
-		Interval<E> eh = ih.next();
-		if (el.intersects(eh)) {
-			return true;
-		} else if (el.isLowerBound(eh.supremum())) {
-			Iterator<Interval<E>> i = il;
-			il = ih;
-			ih = i;
-			eh = el;
-		}
-		while (il.hasNext()) {
-			el = il.next();
-			if (el.intersects(eh)) {
-				return true;
-			} else if (el.isLowerBound(eh.supremum())) {
-				Iterator<Interval<E>> i = il;
-				il = ih;
-				ih = i;
-				eh = el;
+	/**
+	 * Creates a set of points, which are sorted and deduplicated before the
+	 * tree is built directly, which is O(n log n), or O(n) if points is
+	 * already sorted.
+	 */
+	public static <E> SeparateIntervalSet<E> fromPoints(final Comparator<? super E> comparator,
+			final Collection<E> points) {
+		final SeparateIntervalSet<E> result = new SeparateIntervalSet<E>(comparator);
+		final List<E> sorted = new ArrayList<E>(points);
+		sorted.sort(comparator);
+		final List<Interval<E>> intervals = new ArrayList<Interval<E>>(sorted.size());
+		for (final E e : sorted) {
+			if (intervals.isEmpty() || !intervals.get(intervals.size() - 1).contains(e)) {
+				intervals.add(new Interval<E>(comparator, e, e, Interval.INFIMUM_EX_INCLUDED
+						| Interval.SUPREMUM_EX_INCLUDED));
 			}
 		}
-		return false;
+		result.build(intervals);
+		return result;
 	}
 	
-	public Iterator<Interval<E>> iterateIntervals() {
-		return new TreeIterator();
+	/**
+	 * Returns a {@link Collector} that collects Intervals in natural order into
+	 * a set, as {@link #of(Comparator, Collection)} does.
+	 */
+	public static <E> Collector<Interval<E>, ?, SeparateIntervalSet<E>> collector() {
+		return collector(null);
 	}
 	
-	@Override
-	public boolean hasInfimum() {
-		if (root == null) {
-			return false;
-		} else {
-			TreeNode node = root;
-			while (node.left != null) {
-				node = node.left;
-			}
-			return node.value.hasInfimum();
-		}
+	public static <E> Collector<Interval<E>, ?, SeparateIntervalSet<E>> collector(
+			final Comparator<? super E> comparator) {
+		return Collector.of(ArrayList<Interval<E>>::new, List::add, (l, r) -> {
+			l.addAll(r);
+			return l;
+		}, l -> of(comparator, l));
 	}
 	
 	@Override
-	public E infimum() {
-		if (root == null) {
-			throw new NoSuchExtremumException("Infimum");
-		} else {
-			TreeNode node = root;
-			while (node.left != null) {
-				node = node.left;
-			}
-			return node.value.infimum();
-		}
+	protected TreeNode<E> mutable(final TreeNode<E> node) {
+		return node;
 	}
 	
 	@Override
-	public boolean isInfimumIncluded() {
-		if (root == null) {
-			throw new NoSuchExtremumException("Infimum");
-		} else {
-			TreeNode node = root;
-			while (node.left != null) {
-				node = node.left;
-			}
-			return node.value.isInfimumIncluded();
-		}
+	protected void iteratorRemove(final Interval<E> i) {
+		remove(i);
 	}
 	
 	@Override
-	public boolean hasSupremum() {
-		if (root == null) {
-			return false;
-		} else {
-			TreeNode node = root;
-			while (node.right != null) {
-				node = node.right;
-			}
-			return node.value.hasSupremum();
-		}
+	protected void onCoalesce() {
+		coalesces++;
 	}
 	
 	@Override
-	public E supremum() {
-		if (root == null) {
-			throw new NoSuchExtremumException("Supremum");
-		} else {
-			TreeNode node = root;
-			while (node.left != null) {
-				node = node.left;
-			}
-			return node.value.supremum();
-		}
+	protected void onSplit() {
+		splits++;
 	}
 	
-	@Override
-	public boolean isSupremumIncluded() {
-		if (root == null) {
-			throw new NoSuchExtremumException("Supremum");
-		} else {
-			TreeNode node = root;
-			while (node.left != null) {
-				node = node.left;
-			}
-			return node.value.isSupremumIncluded();
+	/**
+	 * Registers listener to be called with every change of this set.
+	 */
+	public void addListener(final IntervalSetListener<E> listener) {
+		if (listeners == null) {
+			listeners = new CopyOnWriteArrayList<IntervalSetListener<E>>();
 		}
+		listeners.add(listener);
 	}
 	
-	@Override
-	public boolean isLowerBound(E e) {
-		if (root == null) {
-			return true;
-		} else {
-			TreeNode node = root;
-			while (node.left != null) {
-				node = node.left;
-			}
-			return node.value.isLowerBound(e);
+	public void removeListener(final IntervalSetListener<E> listener) {
+		if (listeners != null) {
+			listeners.remove(listener);
 		}
 	}
 	
-	@Override
-	public boolean isStrictLowerBound(E e) {
-		if (root == null) {
-			return true;
-		} else {
-			TreeNode node = root;
-			while (node.left != null) {
-				node = node.left;
-			}
-			return node.value.isStrictLowerBound(e);
-		}
+	private boolean listening() {
+		return listeners != null && !listeners.isEmpty();
 	}
 	
-	@Override
-	public boolean isUpperBound(E e) {
-		if (root == null) {
-			return true;
-		} else {
-			TreeNode node = root;
-			while (node.right != null) {
-				node = node.right;
-			}
-			return node.value.isUpperBound(e);
+	/**
+	 * Returns a collector for the changes of a single update, or null if no
+	 * listener needs them.
+	 */
+	private Changes<E> changes() {
+		return listening() ? new Changes<E>() : null;
+	}
+	
+	/**
+	 * Notifies the listeners of change, which is null if nothing changed. The
+	 * tree must already be updated.
+	 */
+	private void fire(final IntervalSetChange<E> change) {
+		if (change != null) {
+			change.fire(listeners);
 		}
 	}
 	
-	@Override
-	public boolean isStrictUpperBound(E e) {
-		if (root == null) {
-			return true;
-		} else {
-			TreeNode node = root;
-			while (node.right != null) {
-				node = node.right;
-			}
-			return node.value.isStrictUpperBound(e);
+	private void fire(final Changes<E> changes, final IntervalSetChange.Kind kind) {
+		if (changes != null) {
+			fire(changes.change(kind));
 		}
 	}
 	
+	/**
+	 * Returns the current structure of the tree, which is computed in O(n),
+	 * and the number of coalescing {@link #union(Interval)} and splitting
+	 * {@link #remove(Interval)} calls so far. Bulk operations count every
+	 * Interval of their operand, as if it was added or removed alone, and
+	 * {@link #retain(Range)} every additional part an Interval is cut into.
+	 */
 	@Override
-	public SeparateIntervalSet<E> toSeparateIntervalSet() {
-		return this;
+	public IntervalSetStats stats() {
+		return stats(coalesces, splits);
 	}
 	
 	@Override
-	public String toString() {
-		if (root == null) {
-			return "O";
-		} else {
-			Iterator<Interval<E>> it = iterateIntervals();
-			StringBuilder sb = new StringBuilder(it.next().toString());
-			while (it.hasNext()) {
-				sb.append("U").append(it.next().toString());
-			}
-			return sb.toString();
-		}
+	public SeparateIntervalSet<E> toSeparateIntervalSet() {
+		return this;
 	}
 	
 	@Override
 	public void add(E e) {
-		TreeNode node = root;
-		while (node != null) {
-			if (node.value.connected(e)) {
-				if (node.value.compare(node.value.infimum(), e) == 0) {
-					if (!node.value.isInfimumIncluded()) {
-						node.value = new Interval<E>(node.value.comparator(), e, node.value.supremum(),
-								node.value.config | Interval.INFIMUM_EX_INCLUDED);
-						
-						TreeNode nl = node.left;
-						if (nl != null) {
-							if (nl.right == null) {
-								if (nl.value.connected(e)) {
-									node.right = nl.left;
-								}
-							} else {
-								while (nl.right.right != null) {
-									nl = nl.left;
-								}
-								if (nl.right.value.connected(e)) {
-									node.value = Interval.connectedUnion(node.value, nl.right.value);
-									nl.right = nl.right.left;
-								}
-							}
-						}
-					}
-				} else if (node.value.compare(node.value.supremum(), e) == 0) {
-					if (!node.value.isSupremumIncluded()) {
-						node.value = new Interval<E>(node.value.comparator(), node.value.infimum(), e,
-								node.value.config | Interval.SUPREMUM_EX_INCLUDED);
-						
-						TreeNode nr = node.right;
-						if (nr != null) {
-							if (nr.left == null) {
-								if (nr.value.connected(e)) {
-									node.right = nr.right;
-								}
-							} else {
-								while (nr.left.left != null) {
-									nr = nr.left;
-								}
-								if (nr.left.value.connected(e)) {
-									node.value = Interval.connectedUnion(node.value, nr.left.value);
-									nr.left = nr.left.right;
-								}
-							}
-						}
-					}
-				}
-			} else if (node.value.isLowerBound(e)) {
-				if (node.left == null) {
-					node.left = new TreeNode(null, new Interval<E>(root.value.comparator(), e, e,
-							Interval.INFIMUM_EX_INCLUDED | Interval.SUPREMUM_EX_INCLUDED), null);
-					return;
-				} else {
-					node = node.left;
-				}
-			} else {
-				if (node.left == null) {
-					node.right = new TreeNode(null, new Interval<E>(root.value.comparator(), e, e,
-							Interval.INFIMUM_EX_INCLUDED | Interval.SUPREMUM_EX_INCLUDED), null);
-					return;
-				} else {
-					node = node.left;
-				}
-			}
+		if (!contains(e)) {
+			union(point(e));
 		}
-		// Does not work if root == null / empty.
 	}
 	
 	@Override
 	public void clear() {
+		final IntervalSetChange<E> change = listening() ? IntervalSetChange.of(IntervalSetChange.Kind.REMOVED,
+				iterateIntervals(), Collections.<Interval<E>> emptyIterator()) : null;
 		root = null;
+		fire(change);
 	}
 	
 	@Override
 	public void union(Interval<E> i) {
-		TreeNode node = root;
 		if (!i.isEmpty()) {
-			if (root == null) {
-				root = new TreeNode(null, i, null);
-			} else if (i.hasInfimum()) {
-				if (i.hasSupremum()) {
-					while (node != null) {
-						if (node.value.intersects(i)) {
-							node.value = Interval.connectedUnion(node.value, i);
-							shutInLeft(node, i);
-							shutInRight(node, i);
-							return;
-						} else if (node.value.isLowerBound(i.supremum())) {
-							if (node.left == null) {
-								node.left = new TreeNode(null, i, null);
-								return;
-							} else {
-								node = node.left;
-							}
-						} else {
-							if (node.right == null) {
-								node.right = new TreeNode(null, i, null);
-								return;
-							} else {
-								node = node.right;
-							}
-						}
-					}
-				} else {
-					while (node != null) {
-						if (node.value.intersects(i)) {
-							node.value = Interval.connectedUnion(node.value, i);
-							node.right = null;
-							shutInRight(node, i);
-							return;
-						} else {
-							if (node.right == null) {
-								node.right = new TreeNode(null, i, null);
-								return;
-							} else {
-								node = node.right;
-							}
-						}
-					}
-				}
-			} else if (i.hasSupremum()) {
-				while (node != null) {
-					if (node.value.intersects(i)) {
-						node.value = Interval.connectedUnion(node.value, i);
-						node.left = null;
-						shutInLeft(node, i);
-						return;
-					} else {
-						if (node.left == null) {
-							node.left = new TreeNode(null, i, null);
-							return;
-						} else {
-							node = node.left;
-						}
-					}
-				}
-			} else {
-				root.left = null;
-				root.right = null;
-				root.value = i;
-			}
+			final Changes<E> changes = changes();
+			root = united(i, changes);
+			fire(changes, IntervalSetChange.Kind.MERGED);
 		}
 	}
 	
-	private void shutInLeft(TreeNode node, Interval<E> i) {
-		TreeNode sub = node;
-		while (sub.right != null) {
-			if (sub.right.value.intersects(i)) {
-				node.value = new Interval<E>(node.value.comparator(), null, sub.right.value.supremum(),
-						sub.right.value.config & Interval.SUPREMUM_EX_INCLUDED);
-				sub.right = sub.right.right;
-			} else {
-				TreeNode ls = sub.right;
-				while (ls.left != null) {
-					if (ls.left.value.intersects(i)) {
-						new Interval<E>(node.value.comparator(), null, ls.left.value.supremum(), sub.right.value.config
-								& Interval.SUPREMUM_EX_INCLUDED);
-						sub = ls.left;
-						ls.left = ls.left.right;
-						break;
-					} else {
-						ls = ls.left;
-					}
-				}
-			}
+	@Override
+	public void remove(E e) {
+		if (contains(e)) {
+			remove(point(e));
 		}
 	}
 	
-	private void shutInRight(TreeNode node, Interval<E> i) {
-		TreeNode sub = node;
-		while (sub.left != null) {
-			if (sub.left.value.intersects(i)) {
-				node.value = new Interval<E>(node.value.comparator(), sub.left.value.infimum(), null,
-						sub.left.value.config & Interval.INFIMUM_EX_INCLUDED);
-				sub.left = sub.left.left;
-			} else {
-				TreeNode ls = sub.left;
-				while (ls.right != null) {
-					if (ls.right.value.intersects(i)) {
-						new Interval<E>(node.value.comparator(), ls.right.value.infimum(), null, sub.left.value.config
-								& Interval.INFIMUM_EX_INCLUDED);
-						sub = ls.right;
-						ls.right = ls.right.left;
-						break;
-					} else {
-						ls = ls.right;
-					}
-				}
-			}
+	@Override
+	public void remove(Interval<E> i) {
+		if (root != null && !i.isEmpty()) {
+			final Changes<E> changes = changes();
+			root = removed(i, changes);
+			fire(changes, IntervalSetChange.Kind.SPLIT);
 		}
 	}
 	
+	/**
+	 * Adds the Intervals of r one by one in O(m log n) if r is a small tree,
+	 * otherwise merges them in O(n + m).
+	 */
 	@Override
-	public void remove(E e) {
-		if (root.value.hasSupremum() || root.value.hasInfimum()) {
-			TreeNode node = root;
-			while (node != null) {
-				if (node.value.contains(e)) {
-					if (node.value.isLowerBound(e)) {
-						node.value = new Interval<E>(node.value.comparator(), e, node.value.supremum(),
-								node.value.config & ~Interval.INFIMUM_INCLUDED);
-					} else if (node.value.isUpperBound(e)) {
-						node.value = new Interval<E>(node.value.comparator(), node.value.infimum(), e,
-								node.value.config & ~Interval.SUPREMUM_INCLUDED);
-					} else {
-						if (node.left == null) {
-							node.left = new TreeNode(null, new Interval<E>(node.value.comparator(),
-									node.value.hasInfimum() ? node.value.infimum() : null, e, node.value.config
-											& ~Interval.SUPREMUM_INCLUDED), null);
-							node.value = new Interval<E>(node.value.comparator(), e, node.value.hasSupremum()
-									? node.value.supremum()
-									: null, node.value.config & ~Interval.INFIMUM_INCLUDED);
-						} else if (node.right == null) {
-							node.right = new TreeNode(null, new Interval<E>(node.value.comparator(), e,
-									node.value.hasSupremum() ? node.value.supremum() : null, node.value.config
-											& ~Interval.INFIMUM_INCLUDED), null);
-							node.value = new Interval<E>(node.value.comparator(), node.value.hasInfimum()
-									? node.value.infimum()
-									: null, e, node.value.config & ~Interval.SUPREMUM_INCLUDED);
-						} else {
-							TreeNode n = node.right;
-							while (n.left != null) {
-								n = n.left;
-							}
-							n.left = new TreeNode(null, new Interval<E>(node.value.comparator(), e,
-									node.value.hasSupremum() ? node.value.supremum() : null, node.value.config
-											& ~Interval.INFIMUM_INCLUDED), null);
-							node.value = new Interval<E>(node.value.comparator(), node.value.hasInfimum()
-									? node.value.infimum()
-									: null, e, node.value.config & ~Interval.SUPREMUM_INCLUDED);
-						}
-					}
-				} else if (node.value.isLowerBound(e)) {
-					node = node.left;
-				} else {
-					node = node.right;
-				}
+	public void union(final Range<E> r) {
+		if (isSmall(r)) {
+			final Changes<E> changes = changes();
+			final Iterator<Interval<E>> it = ((AbstractSeparateIntervalSet<E>) r).iterateIntervals();
+			while (it.hasNext()) {
+				root = united(it.next(), changes);
 			}
+			fire(changes, IntervalSetChange.Kind.MERGED);
 		} else {
-			root.value = new Interval<E>(root.value.comparator(), null, e, Interval.SUPREMUM_EXISTS);
-			root.right = new TreeNode(null, new Interval<E>(root.value.comparator(), e, null, Interval.INFIMUM_EXISTS),
-					null);
+			replace(unionOf(iterateIntervals(), operand(r), true), IntervalSetChange.Kind.MERGED);
 		}
 	}
 	
 	@Override
-	public void remove(Interval<E> i) {
-		if (root != null && !i.isEmpty()) {
-			if (i.hasInfimum()) {
-				if (i.hasSupremum()) {
-					TreeNode node = root;
-					TreeNode parent = null;
-					while (node != null && node.value.intersects(i)) {
-						parent = node;
-						if (node.value.isLowerBound(i.supremum())) {
-							node = node.left;
-						} else {
-							node = node.right;
-						}
-					}
-					if (node != null) {
-						if (isGlobalyLower(i, node.value)) {
-							shutOutLeft(node, i);
-							if (isGlobalyHigher(i, node.value)) {
-								shutOutRight(node, i);
-								TreeNode nc = node.left;
-								while(nc.right!=null){
-									nc = nc.right;
-								}
-								nc.right = node.right;
-								if (parent == null) {
-									root = node.left;
-								} else if(parent.left == node){
-									parent.left = node.left;
-								}else{
-									parent.right = node.left;
-								}
-							} else {
-								node.value = nonEmptyLowerRemove(i, node.value);
-							}
-						} else {
-							if (isGlobalyHigher(i, node.value)) {
-								shutOutRight(node, i);
-							} else {
-								node.right = new TreeNode(null, nonEmptyLowerRemove(i, node.value), node.right);
-							}
-							node.value = nonEmptyUpperRemove(i, node.value);
-						}
-						
-					}
-				} else {
-					TreeNode node = root;
-					TreeNode parent = null;
-					while (node != null && node.value.intersects(i)) {
-						parent = node;
-						node = node.right;
-					}
-					if (node != null) {
-						if (isGlobalyLower(i, node.value)) {
-							shutOutLeft(node, i);
-						} else {
-							node.value = nonEmptyUpperRemove(i, node.value);
-							node.right = null;
-						}
-						if (parent == null) {
-							root = node.left;
-						} else {
-							parent.left = node.left;
-						}
-					}
-				}
-			} else if (i.hasSupremum()) {
-				TreeNode node = root;
-				TreeNode parent = null;
-				while (node != null && node.value.intersects(i)) {
-					parent = node;
-					node = node.left;
-				}
-				if (node != null) {
-					if (isGlobalyHigher(i, node.value)) {
-						shutOutRight(node, i);
-					} else {
-						node.value = nonEmptyLowerRemove(i, node.value);
-						node.left = null;
-					}
-					if (parent == null) {
-						root = node.right;
-					} else {
-						parent.left = node.right;
-					}
-				}
-			} else {
-				root = null;
-			}
-		}
-	}
-	
-	private boolean isGlobalyLower(Interval<E> i, Interval<E> than) {
-		return i.isInfimumIncluded() || !than.isInfimumIncluded() ? than.isLowerBound(i.infimum()) : than
-				.isStrictLowerBound(i.infimum());
+	public void union(final Set<E> s) {
+		union(fromPoints(comparator, s));
 	}
 	
-	private boolean isGlobalyHigher(Interval<E> i, Interval<E> than) {
-		return i.isSupremumIncluded() || !than.isSupremumIncluded() ? than.isUpperBound(i.supremum()) : than
-				.isStrictUpperBound(i.supremum());
+	@Override
+	public void remove(final Set<E> s) {
+		remove(fromPoints(comparator, s));
 	}
 	
-	private Interval<E> nonEmptyLowerRemove(Interval<E> i, Interval<E> from) {
-		return new Interval<E>(from.comparator(), i.supremum(), from.supremum(),
-				(Interval.INFIMUM_INCLUDED & (~i.config >> 1)) | Interval.INFIMUM_EXISTS
-						| (from.config & Interval.SUPREMUM_EX_INCLUDED));
+	/**
+	 * Removes the Intervals of r one by one in O(m log n) if r is a small tree,
+	 * otherwise merges them in O(n + m).
+	 */
+	@Override
+	public void remove(final Range<E> r) {
+		if (isSmall(r)) {
+			final Changes<E> changes = changes();
+			final Iterator<Interval<E>> it = ((AbstractSeparateIntervalSet<E>) r).iterateIntervals();
+			while (it.hasNext() && root != null) {
+				root = removed(it.next(), changes);
+			}
+			fire(changes, IntervalSetChange.Kind.SPLIT);
+		} else {
+			replace(differenceOf(iterateIntervals(), operand(r), true), IntervalSetChange.Kind.SPLIT);
+		}
 	}
 	
-	private Interval<E> nonEmptyUpperRemove(Interval<E> i, Interval<E> from) {
-		return new Interval<E>(from.comparator(), from.infimum(), i.infimum(),
-				(Interval.SUPREMUM_INCLUDED & (~i.config << 1)) | Interval.SUPREMUM_EXISTS
-						| (from.config & Interval.INFIMUM_EX_INCLUDED));
+	/**
+	 * Returns whether r is a tree of m Intervals with m log n < n, so that
+	 * single updates beat rebuilding the whole tree. r is checked to use the
+	 * same comparator.
+	 */
+	private boolean isSmall(final Range<E> r) {
+		if (!(r instanceof AbstractSeparateIntervalSet)) {
+			return false;
+		}
+		final AbstractSeparateIntervalSet<E> other = (AbstractSeparateIntervalSet<E>) r;
+		checkComparator(other);
+		final int n = size();
+		return (long) other.size() * (32 - Integer.numberOfLeadingZeros(n)) < n;
 	}
 	
 	/**
-	 * Removes any Intervals to the left of node, that are contained i and
-	 * removes i from any Interval intersecting i. Asserts that node itself
-	 * intersects i.
-	 * 
-	 * @param node
-	 *            A node intersecting i.
-	 * @param i
-	 *            An {@link Interval} to remove.
+	 * Removes all elements, that are not contained in r.
 	 */
-	private void shutOutLeft(TreeNode node, Interval<E> i) {
-		while (node.left != null && node.left.value.intersects(i)) {
-			if (isGlobalyLower(i, node.left.value)) {
-				node.left = node.left.left;
-			} else {
-				node.left.right = null;
-				node.left.value = nonEmptyUpperRemove(i, node.left.value);
-				return;
-			}
-		}
-		if (node.left != null) {
-			node = node.left;
-			while (node.right != null) {
-				if (node.right.value.intersects(i)) {
-					if (isGlobalyLower(i, node.right.value)) {
-						node.right = node.right.left;
-					} else {
-						node.right.right = null;
-						node.right.value = nonEmptyUpperRemove(i, node.right.value);
-						return;
-					}
-				} else {
-					node = node.right;
-				}
-			}
-		}
+	public void retain(final Range<E> r) {
+		replace(intersectionOf(iterateIntervals(), operand(r), true), IntervalSetChange.Kind.SPLIT);
 	}
 	
 	/**
-	 * Removes any Intervals to the right of node, that are contained i and
-	 * removes i from any Interval intersecting i. Asserts that node itself
-	 * intersects i.
-	 * 
-	 * @param node
-	 *            A node intersecting i.
-	 * @param i
-	 *            An {@link Interval} to remove.
+	 * Adds all elements of r, that are not contained in this set and removes
+	 * those, that are, so this set becomes the symmetric difference.
 	 */
-	private void shutOutRight(TreeNode node, Interval<E> i) {
-		while (node.right != null && node.right.value.intersects(i)) {
-			if (isGlobalyHigher(i, node.right.value)) {
-				node.right = node.right.right;
-			} else {
-				node.right.left = null;
-				node.right.value = nonEmptyLowerRemove(i, node.right.value);
-				return;
-			}
-		}
-		if (node.right != null) {
-			node = node.right;
-			while (node.left != null) {
-				if (node.left.value.intersects(i)) {
-					if (isGlobalyHigher(i, node.left.value)) {
-						node.left = node.left.right;
-					} else {
-						node.left.left = null;
-						node.left.value = nonEmptyLowerRemove(i, node.left.value);
-						return;
-					}
-				} else {
-					node = node.left;
-				}
-			}
-		}
+	public void toggle(final Range<E> r) {
+		final SeparateIntervalSet<E> other = r.toSeparateIntervalSet();
+		checkComparator(other);
+		replace(unionOf(differenceOf(iterateIntervals(), other.iterateIntervals(), true).iterator(), differenceOf(other
+				.iterateIntervals(), iterateIntervals()).iterator(), true), IntervalSetChange.Kind.REPLACED);
 	}
 	
-	private class TreeNode {
-		protected TreeNode left;
-		protected Interval<E> value;
-		protected TreeNode right;
-		
-		public TreeNode(TreeNode left, Interval<E> middle, TreeNode right) {
-			this.left = left;
-			this.value = middle;
-			this.right = right;
-		}
-		
-		public void addToSet(Set<E> set) {
-			set.addAll(value.toSet());
-			if (left != null) {
-				left.addToSet(set);
-			}
-			if (right != null) {
-				right.addToSet(set);
-			}
-		}
-		
-		public boolean isSet() {
-			return value.isSet() && (left == null || left.isSet()) && (right == null || right.isSet());
-		}
+	public static <E> SeparateIntervalSet<E> union(final SeparateIntervalSet<E> a, final Range<E> b) {
+		final SeparateIntervalSet<E> result = new SeparateIntervalSet<E>(a.comparator);
+		result.build(result.unionOf(a.iterateIntervals(), result.operand(b)));
+		return result;
 	}
 	
-	private class TreeIterator implements Iterator<Interval<E>> { // TODO test
-		/**
-		 * path is a list of TreeNodes. It goes from the root to the last node
-		 * that was returned. TreeNodes that are left-parents in the path are
-		 * skipped. null can be appended, if it has already been calculated and
-		 * removing is forbidden.
-		 */
-		private Stack<TreeNode> path;
-		
-		public TreeIterator() {
-			path = new Stack<TreeNode>();
-			TreeNode node = root;
-			while (node != null) {
-				path.push(node);
-				node = node.left;
-			}
-			if (!path.isEmpty()) {
-				path.push(null);
-			}
-		}
-		
-		@Override
-		public boolean hasNext() {
-			if (path.isEmpty()) {
-				return false;
-			} else {
-				TreeNode last = path.peek();
-				if (path.size() > 1 || last == null || last.right != null) {
-					return true;
-				}
-				return false;
-			}
-		}
-		
-		@Override
-		public Interval<E> next() {
-			if (path.empty()) {
-				throw new NoSuchElementException();
-			} else {
-				TreeNode node = path.peek();
-				if (node == null) {
-					path.pop();
-					return path.peek().value;
-				} else {
-					if (node.right == null) {
-						path.pop();
-						return path.peek().value;
-					} else {
-						node = node.right;
-						path.pop();
-						path.push(node);
-						while (node.left != null) {
-							node = node.left;
-							path.push(node);
-						}
-						return node.value;
-					}
-				}
-			}
-		}
-		
-		@Override
-		public void remove() {
-			if (path.isEmpty()) {
-				throw new IllegalStateException();
-			}
-			TreeNode removing = path.pop();
-			if (removing == null) {
-				path.push(null);
-				throw new IllegalStateException();
-			} else {
-				TreeNode subroot = path.peek();
-				if (subroot.left == removing) {
-					if (removing.right == null) {
-						subroot.left = removing.left;
-						path.push(null);
-					} else {
-						subroot.left = removing.left;
-						subroot = subroot.left;
-						while (subroot.right != null) {
-							subroot = subroot.right;
-						}
-						subroot.right = removing.right;
-						subroot = subroot.right;
-						path.push(subroot);
-						while (subroot.left != null) {
-							subroot = subroot.left;
-							path.push(subroot);
-						}
-						path.push(null);
-					}
-				} else {
-					if (removing.left == null) {
-						subroot.right = removing.right;
-						if (subroot.right != null) {
-							path.push(subroot.right);
-						}
-						path.push(null);
-					} else {
-						subroot.right = removing.left;
-						if (removing.right != null) {
-							while (subroot.right != null) {
-								subroot = subroot.right;
-							}
-							subroot.right = removing.right;
-							subroot = subroot.right;
-							path.push(subroot);
-							while (subroot.left != null) {
-								subroot = subroot.left;
-								path.push(subroot);
-							}
-						}
-						path.push(null);
-					}
-				}
-			}
-		}
+	public static <E> SeparateIntervalSet<E> intersection(final SeparateIntervalSet<E> a, final Range<E> b) {
+		final SeparateIntervalSet<E> result = new SeparateIntervalSet<E>(a.comparator);
+		result.build(result.intersectionOf(a.iterateIntervals(), result.operand(b)));
+		return result;
+	}
+	
+	public static <E> SeparateIntervalSet<E> difference(final SeparateIntervalSet<E> a, final Range<E> b) {
+		final SeparateIntervalSet<E> result = new SeparateIntervalSet<E>(a.comparator);
+		result.build(result.differenceOf(a.iterateIntervals(), result.operand(b)));
+		return result;
+	}
+	
+	public static <E> SeparateIntervalSet<E> symmetricDifference(final SeparateIntervalSet<E> a, final Range<E> b) {
+		final SeparateIntervalSet<E> result = new SeparateIntervalSet<E>(a.comparator);
+		final SeparateIntervalSet<E> other = b.toSeparateIntervalSet();
+		result.checkComparator(other);
+		result.build(result.unionOf(result.differenceOf(a.iterateIntervals(), other.iterateIntervals()).iterator(),
+				result.differenceOf(other.iterateIntervals(), a.iterateIntervals()).iterator()));
+		return result;
+	}
+	
+	/**
+	 * Replaces the content of this set by sorted separated Intervals, building
+	 * a balanced tree in O(n).
+	 */
+	private void build(final List<Interval<E>> intervals) {
+		root = build(intervals, 0, intervals.size());
+	}
+	
+	/**
+	 * Builds the tree from intervals as {@link #build(List)} does and notifies
+	 * the listeners of the difference to the previous content.
+	 */
+	private void replace(final List<Interval<E>> intervals, final IntervalSetChange.Kind kind) {
+		final IntervalSetChange<E> change = listening() ? IntervalSetChange.of(kind, iterateIntervals(), intervals
+				.iterator()) : null;
+		build(intervals);
+		fire(change);
 	}
 }